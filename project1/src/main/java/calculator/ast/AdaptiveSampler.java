@@ -0,0 +1,162 @@
+package calculator.ast;
+
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * Samples a function densely where it changes quickly and sparsely where it doesn't.
+ *
+ * Sampling starts with a coarse, evenly spaced grid. Then, in a series of passes,
+ * every interval that is still being refined is split at its midpoint. If the value
+ * at the midpoint is further than half a pixel from the straight line between the
+ * interval's endpoints, both halves are refined again in the next pass; otherwise,
+ * drawing that interval as a line is already accurate to within a pixel, so it's left
+ * alone. This stops once no intervals need refining, or when the next pass would go
+ * over the point budget.
+ *
+ * Since every pass refines all of the remaining intervals, the budget is spent evenly
+ * across the plot rather than on whichever end is sampled first.
+ */
+public class AdaptiveSampler {
+    // The coarse grid has one point per COARSE_SPACING pixels
+    private static final int COARSE_SPACING = 4;
+
+    // The budget allows this many points per pixel of width
+    private static final int POINTS_PER_PIXEL = 4;
+
+    private double[] xValues;
+    private double[] yValues;
+
+    private AdaptiveSampler(double[] xValues, double[] yValues) {
+        this.xValues = xValues;
+        this.yValues = yValues;
+    }
+
+    /**
+     * Samples 'function' between min and max (inclusive) for a plot that is 'width' by
+     * 'height' pixels, and returns the sampler holding the points in increasing order of x.
+     *
+     * @throws IllegalArgumentException  if min > max, or if width or height isn't positive
+     */
+    public static AdaptiveSampler sample(DoubleUnaryOperator function, double min, double max,
+                                         int width, int height) {
+        if (min > max || width <= 0 || height <= 0) {
+            throw new IllegalArgumentException();
+        }
+        if (min == max) {
+            return new AdaptiveSampler(new double[] {min}, new double[] {function.applyAsDouble(min)});
+        }
+
+        int numPoints = Math.max(width / COARSE_SPACING, 2);
+        double[] xs = new double[numPoints];
+        double[] ys = new double[numPoints];
+        for (int i = 0; i < numPoints; i++) {
+            xs[i] = i == numPoints - 1 ? max : min + (max - min) * i / (numPoints - 1);
+            ys[i] = function.applyAsDouble(xs[i]);
+        }
+        AdaptiveSampler sampler = new AdaptiveSampler(xs, ys);
+
+        double tolerance = sampler.range() / height / 2;
+        boolean[] refine = new boolean[numPoints - 1];
+        for (int i = 0; i < refine.length; i++) {
+            refine[i] = true;
+        }
+        int numRefining = refine.length;
+        int budget = width * POINTS_PER_PIXEL;
+        while (numRefining > 0 && sampler.size() + numRefining <= budget) {
+            refine = sampler.refine(function, refine, numRefining, tolerance);
+            numRefining = 0;
+            for (boolean flag : refine) {
+                if (flag) {
+                    numRefining++;
+                }
+            }
+        }
+        return sampler;
+    }
+
+    /**
+     * Returns the number of points sampled.
+     */
+    public int size() {
+        return this.xValues.length;
+    }
+
+    /**
+     * Returns the x coordinates of the sampled points, in increasing order.
+     */
+    public double[] getXValues() {
+        return this.xValues;
+    }
+
+    /**
+     * Returns the values of the function at each of the x coordinates.
+     */
+    public double[] getYValues() {
+        return this.yValues;
+    }
+
+    /**
+     * Splits every interval marked in 'refine' at its midpoint, and returns which of the
+     * resulting intervals should be refined in the next pass.
+     */
+    private boolean[] refine(DoubleUnaryOperator function, boolean[] refine, int numRefining, double tolerance) {
+        int newSize = this.xValues.length + numRefining;
+        double[] xs = new double[newSize];
+        double[] ys = new double[newSize];
+        boolean[] next = new boolean[newSize - 1];
+
+        int out = 0;
+        for (int i = 0; i < refine.length; i++) {
+            xs[out] = this.xValues[i];
+            ys[out] = this.yValues[i];
+            out++;
+            if (refine[i]) {
+                double left = this.yValues[i];
+                double right = this.yValues[i + 1];
+                double x = (this.xValues[i] + this.xValues[i + 1]) / 2;
+                double y = function.applyAsDouble(x);
+                xs[out] = x;
+                ys[out] = y;
+                boolean needsMore = isCoarse(left, y, right, tolerance);
+                next[out - 1] = needsMore;
+                next[out] = needsMore;
+                out++;
+            }
+        }
+        xs[out] = this.xValues[refine.length];
+        ys[out] = this.yValues[refine.length];
+
+        this.xValues = xs;
+        this.yValues = ys;
+        return next;
+    }
+
+    /**
+     * Returns 'true' if 'middle' is too far from the line between 'left' and 'right'.
+     */
+    private static boolean isCoarse(double left, double middle, double right, double tolerance) {
+        double error = Math.abs(middle - (left + right) / 2);
+        if (Double.isNaN(error) || Double.isInfinite(error)) {
+            // Keep looking for the edge of an asymptote or of an undefined region,
+            // unless the function is undefined throughout this interval.
+            return !(Double.isNaN(left) && Double.isNaN(middle) && Double.isNaN(right));
+        }
+        return error > tolerance;
+    }
+
+    /**
+     * Returns the distance between the smallest and largest finite values sampled so far,
+     * or 1 if that distance is zero.
+     */
+    private double range() {
+        double low = Double.POSITIVE_INFINITY;
+        double high = Double.NEGATIVE_INFINITY;
+        for (double y : this.yValues) {
+            if (!Double.isNaN(y) && !Double.isInfinite(y)) {
+                low = Math.min(low, y);
+                high = Math.max(high, y);
+            }
+        }
+        return high > low ? high - low : 1;
+    }
+}
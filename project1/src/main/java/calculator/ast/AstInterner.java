@@ -0,0 +1,226 @@
+package calculator.ast;
+
+import datastructures.concrete.DynamicArrayList;
+import datastructures.concrete.ImmutableList;
+import datastructures.interfaces.IList;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+
+/**
+ * Hands out one shared instance for every distinct tree (a hash-cons table).
+ *
+ * Interning a tree returns the canonical instance of a tree equal to it, so two
+ * interned trees are equal exactly when they are the same object. Subtrees are
+ * shared too: every copy of "x ^ 2" inside an interned tree is the same node,
+ * no matter how often it appears.
+ *
+ * The table only holds weak references, so canonical nodes nobody else refers
+ * to any more are still garbage collected. Trees are interned bottom-up with an
+ * explicit stack, so interning a very deep tree doesn't overflow the call stack.
+ *
+ * All methods are synchronized, so one interner can be shared between threads.
+ */
+public class AstInterner {
+    private static final AstInterner SHARED = new AstInterner();
+
+    private static final int DEFAULT_CAPACITY = 64;
+
+    private WeakNode[] buckets;
+    private int size;
+    private ReferenceQueue<AstNode> collected;
+
+    public AstInterner() {
+        this.buckets = new WeakNode[DEFAULT_CAPACITY];
+        this.size = 0;
+        this.collected = new ReferenceQueue<>();
+    }
+
+    /**
+     * Returns the interner shared by the parser and the interpreter.
+     */
+    public static AstInterner shared() {
+        return SHARED;
+    }
+
+    /**
+     * Returns the canonical number node holding the given value.
+     */
+    public AstNode number(double value) {
+        return this.intern(new AstNode(value));
+    }
+
+    /**
+     * Returns the canonical variable node with the given name.
+     */
+    public AstNode variable(String name) {
+        return this.intern(new AstNode(name));
+    }
+
+    /**
+     * Returns the canonical operation node with the given name and children.
+     */
+    public AstNode operation(String name, IList<AstNode> children) {
+        return this.intern(new AstNode(name, children));
+    }
+
+    /**
+     * Returns the canonical instance of a tree equal to the given one.
+     *
+     * If no equal tree has been interned yet, the given tree becomes canonical
+     * wherever its children already are; the rest is rebuilt from canonical
+     * children.
+     */
+    public synchronized AstNode intern(AstNode node) {
+        if (node.interner == this) {
+            return node;
+        }
+        this.expungeCollected();
+        if (this.hasCanonicalChildren(node)) {
+            // The common case when building trees bottom-up through this interner
+            AstNode canonical = this.canonicalize(node);
+            canonical.interner = this;
+            return canonical;
+        }
+
+        // Lists every node that still needs interning so that each node comes
+        // after all of its children. Canonical subtrees are left as they are.
+        IList<AstNode> pending = new DynamicArrayList<>();
+        IList<AstNode> order = new DynamicArrayList<>();
+        pending.add(node);
+        while (!pending.isEmpty()) {
+            AstNode next = pending.remove();
+            order.add(next);
+            for (AstNode child : next.getChildren()) {
+                if (child.interner != this) {
+                    pending.add(child);
+                }
+            }
+        }
+
+        // Nodes are only marked canonical once every node is done, so the check below
+        // still sees which children were listed above
+        IList<AstNode> results = new DynamicArrayList<>();
+        IList<AstNode> added = new DynamicArrayList<>();
+        for (int i = order.size() - 1; i >= 0; i--) {
+            AstNode next = order.get(i);
+            IList<AstNode> children = next.getChildren();
+            AstNode[] canonicalChildren = new AstNode[children.size()];
+            boolean changed = false;
+            for (int j = canonicalChildren.length - 1; j >= 0; j--) {
+                AstNode child = children.get(j);
+                canonicalChildren[j] = child.interner == this ? child : results.remove();
+                changed |= canonicalChildren[j] != child;
+            }
+            if (changed) {
+                next = new AstNode(next.getName(), ImmutableList.of(canonicalChildren));
+            }
+            AstNode canonical = this.canonicalize(next);
+            if (canonical == next) {
+                added.add(next);
+            }
+            results.add(canonical);
+        }
+        for (AstNode newNode : added) {
+            newNode.interner = this;
+        }
+        return results.remove();
+    }
+
+    private boolean hasCanonicalChildren(AstNode node) {
+        for (AstNode child : node.getChildren()) {
+            if (child.interner != this) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the number of canonical nodes that haven't been garbage collected yet.
+     */
+    public synchronized int size() {
+        this.expungeCollected();
+        return this.size;
+    }
+
+    /**
+     * Returns the canonical instance of a node whose children are all canonical,
+     * adding the node itself to the table if there isn't one yet.
+     */
+    private AstNode canonicalize(AstNode node) {
+        int hash = spread(node.hashCode());
+        int index = hash & (this.buckets.length - 1);
+        for (WeakNode entry = this.buckets[index]; entry != null; entry = entry.next) {
+            AstNode candidate = entry.get();
+            if (entry.hash == hash && candidate != null && AstNode.equalShallowly(candidate, node)) {
+                return candidate;
+            }
+        }
+
+        this.buckets[index] = new WeakNode(node, hash, this.buckets[index], this.collected);
+        this.size += 1;
+        if (this.size > this.buckets.length * 3 / 4) {
+            this.resize();
+        }
+        return node;
+    }
+
+    /**
+     * Mixes the high bits of the hash code into the low ones: number nodes that
+     * hold whole numbers have hash codes whose low bits are all zero.
+     */
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private void resize() {
+        WeakNode[] newBuckets = new WeakNode[this.buckets.length * 2];
+        for (WeakNode entry : this.buckets) {
+            while (entry != null) {
+                WeakNode next = entry.next;
+                int index = entry.hash & (newBuckets.length - 1);
+                entry.next = newBuckets[index];
+                newBuckets[index] = entry;
+                entry = next;
+            }
+        }
+        this.buckets = newBuckets;
+    }
+
+    /**
+     * Unlinks the entries of every canonical node the garbage collector has cleared.
+     */
+    private void expungeCollected() {
+        Object cleared;
+        while ((cleared = this.collected.poll()) != null) {
+            WeakNode stale = (WeakNode) cleared;
+            int index = stale.hash & (this.buckets.length - 1);
+            WeakNode previous = null;
+            for (WeakNode entry = this.buckets[index]; entry != null; entry = entry.next) {
+                if (entry == stale) {
+                    if (previous == null) {
+                        this.buckets[index] = entry.next;
+                    } else {
+                        previous.next = entry.next;
+                    }
+                    this.size -= 1;
+                    break;
+                }
+                previous = entry;
+            }
+        }
+    }
+
+    private static class WeakNode extends WeakReference<AstNode> {
+        // Kept separately, since the node itself may already be gone
+        public final int hash;
+        public WeakNode next;
+
+        public WeakNode(AstNode node, int hash, WeakNode next, ReferenceQueue<AstNode> queue) {
+            super(node, queue);
+            this.hash = hash;
+            this.next = next;
+        }
+    }
+}
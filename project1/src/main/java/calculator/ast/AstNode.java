@@ -1,31 +1,70 @@
 package calculator.ast;
 
 import calculator.errors.EvaluationError;
-import datastructures.concrete.DoubleLinkedList;
+import datastructures.concrete.DynamicArrayList;
+import datastructures.concrete.ImmutableList;
 import datastructures.interfaces.IList;
 
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
 /**
  * Represents a single node in an abstract syntax tree (AST).
  *
  * See spec for more details on what an AST is.
+ *
+ * Two AstNodes are equal if they represent the same tree: the same kind of
+ * node, the same name or number, and equal children in the same order.
+ * Numbers are compared the way Double.equals compares them, so NaN equals
+ * NaN but 0.0 doesn't equal -0.0. Each node computes its hash code from its
+ * children's when it's created, so hashCode runs in O(1) time.
+ *
+ * Use AstInterner to share a single instance between equal trees; comparing
+ * two interned trees then only takes a reference comparison.
  */
 public class AstNode {
+    // The most variables a node's summary may hold; see getVariableSummary
+    private static final int MAX_SUMMARY_SIZE = 64;
+
     private String name;
+    private double numericValue;
     private IList<AstNode> children;
     private ExprType type;
+    private Opcode opcode;
+    private int hash;
+
+    // Summaries of the subtree, used to skip parts of it that simplify wouldn't change
+    private VariableSet variableSummary;
+    private boolean foldsToNumber;
+    private boolean canFold;
+
+    // The variables in the subtree, once getFreeVariables has been asked for them
+    private VariableSet freeVariables;
+
+    // The interner this node is the canonical instance for, if any
+    AstInterner interner;
 
     /**
      * Creates a leaf node representing a single number.
+     *
+     * The number is kept as a primitive double: number nodes never carry
+     * a string form, so reading the value back never needs to re-parse it.
      */
     public AstNode(double number) {
-        this("" + number, new DoubleLinkedList<>(), ExprType.NUMBER);
+        this(null, ImmutableList.of(), ExprType.NUMBER);
+        this.numericValue = number;
+        this.hash = Double.hashCode(number);
+        this.foldsToNumber = true;
     }
 
     /**
      * Creates a leaf node representing a variable.
      */
     public AstNode(String name) {
-        this(name, new DoubleLinkedList<>(), ExprType.VARIABLE);
+        this(name, ImmutableList.of(), ExprType.VARIABLE);
+        this.variableSummary = VariableSet.of(name);
+        this.freeVariables = this.variableSummary;
     }
 
     /**
@@ -46,15 +85,45 @@ public class AstNode {
      *
      * Note that the list of children may be empty: this represents calling a
      * function with no arguments.
+     *
+     * The children are copied into a compact, read-only list sized for the
+     * number of children, so later changes to the given list don't affect
+     * this node.
      */
     public AstNode(String name, IList<AstNode> children) {
         this(name, children, ExprType.OPERATION);
+        this.opcode = Opcode.fromName(name);
+        if ((this.opcode == Opcode.PLUS || this.opcode == Opcode.MINUS || this.opcode == Opcode.MULTIPLY)
+                && this.children.size() == 2
+                && this.children.get(0).foldsToNumber && this.children.get(1).foldsToNumber) {
+            this.foldsToNumber = true;
+            this.canFold = true;
+        }
     }
 
     private AstNode(String name, IList<AstNode> children, ExprType type) {
         this.name = name;
-        this.children = children;
+        this.children = ImmutableList.copyOf(children);
         this.type = type;
+
+        VariableSet summary = VariableSet.EMPTY;
+        boolean canFold = false;
+        int hash = name == null ? 0 : 31 * type.hashSeed + name.hashCode();
+        for (int i = 0; i < this.children.size(); i++) {
+            AstNode child = this.children.get(i);
+            hash = 31 * hash + child.hash;
+            if (summary != null) {
+                summary = child.variableSummary == null ? null : summary.union(child.variableSummary);
+                if (summary != null && summary.size() > MAX_SUMMARY_SIZE) {
+                    summary = null;
+                }
+            }
+            canFold |= child.canFold;
+        }
+        this.hash = hash;
+        this.variableSummary = summary;
+        this.freeVariables = summary;
+        this.canFold = canFold;
     }
 
     /**
@@ -100,7 +169,21 @@ public class AstNode {
         if (!this.isNumber()) {
             throw new EvaluationError("Attempted to call 'getNumericValue()' on a variable or operation AstNode");
         }
-        return Double.parseDouble(this.name);
+        return this.numericValue;
+    }
+
+    /**
+     * Returns the opcode this operation's name was resolved to when the
+     * node was created. Names that aren't builtin operations resolve to
+     * Opcode.UNKNOWN.
+     *
+     * @throws EvaluationError  if this node does not represent an operation
+     */
+    public Opcode getOpcode() {
+        if (!this.isOperation()) {
+            throw new EvaluationError("Attempted to call 'getOpcode()' on a number or variable AstNode");
+        }
+        return this.opcode;
     }
 
     /**
@@ -108,14 +191,174 @@ public class AstNode {
      *
      * If this node represents a number or variable, the returned list
      * is guaranteed to be empty.
+     *
+     * The returned list is read-only: build a new AstNode with a new list of
+     * children instead of modifying it.
      */
     public IList<AstNode> getChildren() {
         return this.children;
     }
 
+    /**
+     * Returns the set of variables that appear anywhere in this tree.
+     *
+     * For a tree with more variables than its summary can hold, this walks down to the
+     * subtrees that do have summaries the first time it's called, and keeps the result.
+     */
+    public VariableSet getFreeVariables() {
+        VariableSet variables = this.freeVariables;
+        if (variables == null) {
+            variables = this.collectFreeVariables();
+            this.freeVariables = variables;
+        }
+        return variables;
+    }
+
+    /**
+     * Returns the set of variables that appear anywhere in this tree, or null if there
+     * are more than MAX_SUMMARY_SIZE of them. This never walks the tree.
+     *
+     * Every node keeps a summary of its subtree when it's created, so they're capped:
+     * otherwise each level of a long sum of distinct variables would hold a copy of
+     * nearly all of them, taking quadratic time and space. A node without a summary
+     * has to be treated as if it might contain any variable.
+     */
+    VariableSet getVariableSummary() {
+        return this.variableSummary;
+    }
+
+    private VariableSet collectFreeVariables() {
+        IList<VariableSet> summaries = new DynamicArrayList<>();
+        IList<AstNode> pending = new DynamicArrayList<>();
+        // Subtrees may be shared, so each one is only visited once
+        Set<AstNode> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        pending.add(this);
+        while (!pending.isEmpty()) {
+            AstNode node = pending.remove();
+            for (AstNode child : node.children) {
+                if (child.variableSummary != null) {
+                    summaries.add(child.variableSummary);
+                } else if (visited.add(child)) {
+                    pending.add(child);
+                }
+            }
+        }
+        return VariableSet.unionAll(summaries);
+    }
+
+    /**
+     * Returns 'false' if simplifying this tree can't fold any arithmetic, as long as
+     * none of its variables are defined. (A 'true' answer only means it might.)
+     *
+     * A tree that can't fold and contains no defined variables is already as simple
+     * as it gets, so simplify returns it as it is without looking inside.
+     */
+    public boolean canFold() {
+        return this.canFold;
+    }
+
+    @Override
+    public int hashCode() {
+        return this.hash;
+    }
+
+    /**
+     * Returns 'true' if the given object is an AstNode representing the same tree
+     * as this one.
+     */
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof AstNode && equalTrees(this, (AstNode) other, 0);
+    }
+
+    // How deep equalTrees recurses before it switches to an explicit stack
+    private static final int MAX_RECURSION_DEPTH = 500;
+
+    private static boolean equalTrees(AstNode left, AstNode right, int depth) {
+        if (left == right) {
+            return true;
+        } else if (!equalNodes(left, right)) {
+            return false;
+        } else if (depth >= MAX_RECURSION_DEPTH) {
+            return equalTreesIteratively(left, right);
+        }
+        IList<AstNode> leftChildren = left.children;
+        IList<AstNode> rightChildren = right.children;
+        for (int i = 0; i < leftChildren.size(); i++) {
+            if (!equalTrees(leftChildren.get(i), rightChildren.get(i), depth + 1)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Compares two trees using an explicit stack, so very deep trees don't overflow
+     * the call stack.
+     */
+    private static boolean equalTreesIteratively(AstNode left, AstNode right) {
+        IList<AstNode> pending = new DynamicArrayList<>();
+        pending.add(left);
+        pending.add(right);
+        while (!pending.isEmpty()) {
+            AstNode b = pending.remove();
+            AstNode a = pending.remove();
+            if (a == b) {
+                continue;
+            } else if (!equalNodes(a, b)) {
+                return false;
+            }
+            for (int i = 0; i < a.children.size(); i++) {
+                pending.add(a.children.get(i));
+                pending.add(b.children.get(i));
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns 'true' if the two nodes match and have the very same child instances.
+     *
+     * Once the children of both nodes have been interned, this is the same as
+     * checking whether the two trees are equal.
+     */
+    static boolean equalShallowly(AstNode left, AstNode right) {
+        if (!equalNodes(left, right)) {
+            return false;
+        }
+        for (int i = 0; i < left.children.size(); i++) {
+            if (left.children.get(i) != right.children.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns 'true' if the two nodes match, not counting the contents of their children.
+     */
+    private static boolean equalNodes(AstNode left, AstNode right) {
+        if (left.hash != right.hash || left.type != right.type) {
+            return false;
+        } else if (left.type == ExprType.NUMBER) {
+            return Double.doubleToLongBits(left.numericValue) == Double.doubleToLongBits(right.numericValue);
+        } else if (left.type == ExprType.VARIABLE) {
+            return left.name.equals(right.name);
+        } else {
+            return left.name.equals(right.name) && left.children.size() == right.children.size();
+        }
+    }
+
     private enum ExprType {
-        NUMBER,
-        VARIABLE,
-        OPERATION,
+        NUMBER(0),
+        VARIABLE(1),
+        OPERATION(2);
+
+        // Keeps variables and operations with the same name from hashing alike
+        public final int hashSeed;
+
+        ExprType(int hashSeed) {
+            this.hashSeed = hashSeed;
+        }
     }
 }
@@ -37,6 +37,12 @@ public class BuiltinManipulators {
                     var.isNumber() ? var.getNumericValue() : var.getName()));
         }
 
+        // A definition that refers back to the variable could never be evaluated, so
+        // it's rejected before it replaces the old one
+        if (ExpressionManipulators.dependsOn(env, expr, var.getName())) {
+            throw new EvaluationError("Cyclic definition: " + var.getName());
+        }
+
         // Record and return result
         env.getVariables().put(var.getName(), expr);
         return expr;
@@ -5,14 +5,24 @@
  */
 
 package calculator.ast;
+import calculator.compiler.BytecodeCompiler;
+import calculator.compiler.ColumnEvaluator;
+import calculator.compiler.StackProgram;
 import calculator.interpreter.Environment;
+import calculator.interpreter.VariableStore;
 import calculator.errors.EvaluationError;
 import calculator.gui.ImageDrawer;
-import datastructures.concrete.DoubleLinkedList;
-import datastructures.concrete.dictionaries.ArrayDictionary;
+import datastructures.concrete.DoubleList;
+import datastructures.concrete.DynamicArrayList;
+import datastructures.concrete.ImmutableList;
+import datastructures.concrete.dictionaries.ChainedHashDictionary;
 import datastructures.interfaces.IDictionary;
 import datastructures.interfaces.IList;
-import misc.exceptions.NotYetImplementedException;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.Supplier;
 
 /**
  * All of the static methods in this class are given the exact same parameters for
@@ -23,6 +33,12 @@ import misc.exceptions.NotYetImplementedException;
  * pairs in some cases.
  */
 public class ExpressionManipulators {
+    // The size in pixels assumed for adaptive plots when the drawer doesn't know its own
+    private static final int DEFAULT_PLOT_SIZE = 800;
+
+    // The most points a plot with a step may have; each one takes 16 bytes
+    private static final double MAX_PLOT_POINTS = 1e7;
+
     /**
      * Takes the given AstNode node and attempts to convert it into a double.
      *
@@ -33,148 +49,526 @@ public class ExpressionManipulators {
      */
     public static AstNode toDouble(Environment env, AstNode node) {
     		// to avoid the extraneous toDouble() string
-    		if (node.isOperation() && node.getName().equals("toDouble")) {
-    			return new AstNode(toDoubleHelper(env.getVariables(), node.getChildren().get(0)));
+    		if (node.isOperation() && node.getOpcode() == Opcode.TO_DOUBLE) {
+    			node = node.getChildren().get(0);
 		}
-        return new AstNode(toDoubleHelper(env.getVariables(), node));
+    		// reuse the value from an earlier call if none of its variables have changed
+    		VariableStore store = env.getVariableStore();
+    		if (store != null && node.isOperation()) {
+    			return new AstNode(store.getNumericValue(node, exp -> toDoubleHelper(env, new VariableMemo(env), exp)));
+    		}
+        return new AstNode(toDoubleHelper(env, new VariableMemo(env), node));
     }
 
     /*
-     * Takes a node of type either operation, variable, or number, and a dictionary of variables
+     * Takes a node of type either operation, variable, or number, the environment to look up variables in,
+     * and the values of the variables evaluated so far
      * Evaluates the given AST node tree and returns a double
-     * throws EvaluationError exception if there is an undefined variable
+     * throws EvaluationError exception if there is an undefined variable, or a variable defined in terms of itself
+     *
+     * Operations are visited with the memo's work stack instead of recursion: each one stays
+     * on the frame stack until its children's values are on the value stack.
      */
-    private static double toDoubleHelper(IDictionary<String, AstNode> variables, AstNode node) {
+    private static double toDoubleHelper(Environment env, VariableMemo memo, AstNode node) {
         // There are three types of nodes, so we have three cases.
         if (node.isNumber()) {
         		return node.getNumericValue();
         } else if (node.isVariable()) {
-            if (!variables.containsKey(node.getName())) {
-                // If the expression contains an undefined variable, we give up.
-                throw new EvaluationError("Undefined variable: " + node.getName());
-            }
-            AstNode var = variables.get(node.getName());
-            return toDoubleHelper(variables, var);
-        } else {
-            String name = node.getName();
-            IList<AstNode> nodes = node.getChildren();
-            if (name.equals("+")) {
-            		return toDoubleHelper(variables, nodes.get(0)) + toDoubleHelper(variables, nodes.get(1));
-            } else if (name.equals("-")) {
-            		return toDoubleHelper(variables, nodes.get(0)) - toDoubleHelper(variables, nodes.get(1));
-            } else if (name.equals("*")) {
-            		return toDoubleHelper(variables, nodes.get(0)) * toDoubleHelper(variables, nodes.get(1));
-            } else if (name.equals("/")) {
-            		return toDoubleHelper(variables, nodes.get(0)) / toDoubleHelper(variables, nodes.get(1));
-            } else if (name.equals("^")) {
-            		double base = toDoubleHelper(variables, nodes.get(0));
-            		double exp = (int) toDoubleHelper(variables, nodes.get(1));
-            		return Math.pow(base, exp);
-            } else if (name.equals("negate")) {
-            		return (-1) * (toDoubleHelper(variables, nodes.get(0)));
-            } else if (name.equals("sin")) {
-                double result = toDoubleHelper(variables, nodes.get(0));
-                return Math.sin(result);
-            } else if (name.equals("cos")) {
-	            	double result = toDoubleHelper(variables, nodes.get(0));
-            		return Math.cos(result);
-            } else {
-                throw new EvaluationError("Unknown operation: " + name);
-            }
+            return memo.getNumericValue(node.getName());
+        }
+        WorkStack work = memo.work;
+        int frameDepth = work.getFrameDepth();
+        int valueDepth = work.getValueDepth();
+        int resultDepth = work.getResultDepth();
+        try {
+        		work.pushFrame(node);
+        		while (work.getFrameDepth() > frameDepth) {
+        			AstNode current = work.peekFrame();
+        			int next = work.nextChild();
+        			int arity = arity(current.getOpcode());
+        			if (arity < 0) {
+        				throw new EvaluationError("Unknown operation: " + current.getName());
+        			} else if (next < arity) {
+        				AstNode child = current.getChildren().get(next);
+        				if (child.isNumber()) {
+        					work.pushValue(child.getNumericValue());
+        				} else if (child.isVariable()) {
+        					work.pushValue(memo.getNumericValue(child.getName()));
+        				} else {
+        					work.pushFrame(child);
+        				}
+        			} else {
+        				work.popFrame();
+        				work.pushValue(apply(current.getOpcode(), work));
+        			}
+        		}
+        		return work.popValue();
+        } finally {
+        		work.truncate(frameDepth, valueDepth, resultDepth);
+        }
+    }
+
+    // returns the number of children toDouble evaluates for the operation, or -1 if it's unknown
+    private static int arity(Opcode opcode) {
+        switch (opcode) {
+            case PLUS:
+            case MINUS:
+            case MULTIPLY:
+            case DIVIDE:
+            case POW:
+                return 2;
+            case NEGATE:
+            case SIN:
+            case COS:
+                return 1;
+            default:
+                return -1;
+        }
+    }
+
+    // pops the values of the operation's children off the work stack and combines them
+    private static double apply(Opcode opcode, WorkStack work) {
+        double right;
+        switch (opcode) {
+            case PLUS:
+                right = work.popValue();
+                return work.popValue() + right;
+            case MINUS:
+                right = work.popValue();
+                return work.popValue() - right;
+            case MULTIPLY:
+                right = work.popValue();
+                return work.popValue() * right;
+            case DIVIDE:
+                right = work.popValue();
+                return work.popValue() / right;
+            case POW:
+                double exp = (int) work.popValue();
+                double base = work.popValue();
+                return Math.pow(base, exp);
+            case NEGATE:
+                return (-1) * work.popValue();
+            case SIN:
+                return Math.sin(work.popValue());
+            case COS:
+                return Math.cos(work.popValue());
+            default:
+                throw new AssertionError(opcode);
         }
     }
 
     public static AstNode simplify(Environment env, AstNode node) {
     		// to avoid the extraneous simplify() string
-    		if (node.isOperation() && node.getName().equals("simplify")) {
-    			return simplifyHelper(env.getVariables(), node.getChildren().get(0));
+    		if (node.isOperation() && node.getOpcode() == Opcode.SIMPLIFY) {
+    			node = node.getChildren().get(0);
+    		}
+    		// reuse the result of an earlier call if none of its variables have changed
+    		VariableStore store = env.getVariableStore();
+    		if (store != null && node.isOperation()) {
+    			return store.getSimplified(node, exp -> simplifyHelper(env, new VariableMemo(env), exp));
     		}
-    		return simplifyHelper(env.getVariables(), node);
+    		return simplifyHelper(env, new VariableMemo(env), node);
     }
     
     /*
      * Takes an AstNode of type either variable, number, or operation and simplifies it
      * Returns a node that's been simplified to the lowest level, leaving placeholder variables
+     * throws EvaluationError exception if there is a variable defined in terms of itself
+     *
+     * Like toDoubleHelper, this walks the tree with the memo's work stack; the simplified
+     * children wait on the result stack until their parent is rebuilt.
+     */
+    private static AstNode simplifyHelper(Environment env, VariableMemo memo, AstNode node) {
+    		AstNode done = simplifyWithoutVisiting(memo, node);
+    		if (done != null) {
+    			return done;
+    		}
+    		WorkStack work = memo.work;
+    		int frameDepth = work.getFrameDepth();
+    		int valueDepth = work.getValueDepth();
+    		int resultDepth = work.getResultDepth();
+    		try {
+    			work.pushFrame(node);
+    			while (work.getFrameDepth() > frameDepth) {
+    				AstNode current = work.peekFrame();
+    				int next = work.nextChild();
+    				// only the first child of functions other than arithmetic is simplified
+    				int count = isArithmetic(current.getOpcode()) ? 2 : 1;
+    				if (next < count) {
+    					AstNode child = current.getChildren().get(next);
+    					done = simplifyWithoutVisiting(memo, child);
+    					if (done != null) {
+    						work.pushResult(done);
+    					} else {
+    						work.pushFrame(child);
+    					}
+    				} else {
+    					work.popFrame();
+    					work.pushResult(rebuild(current, work));
+    				}
+    			}
+    			return work.popResult();
+    		} finally {
+    			work.truncate(frameDepth, valueDepth, resultDepth);
+    		}
+	}
+
+    /*
+     * Returns the simplified node if it can be found without visiting the node's children,
+     * or null otherwise
      */
-    private static AstNode simplifyHelper(IDictionary<String, AstNode> variables, AstNode node) {
+    private static AstNode simplifyWithoutVisiting(VariableMemo memo, AstNode node) {
     		if (node.isNumber()) {
     			return node;
     		} else if (node.isVariable()) {
-    			if (variables.containsKey(node.getName())) {
-    				return variables.get(node.getName());
+    			// replace the variable with its own definition, simplified
+    			AstNode value = memo.getSimplified(node.getName());
+    			if (value != null) {
+    				return value;
     			}
     			return node; // already in it's simplest form
-    		} else {
-    			String name = node.getName();
-    			IList<AstNode> nodes = node.getChildren();
-    			if (name.equals("+") || name.equals("-") || name.equals("*") || name.equals("/")) {
-    				// to simplify farther down the tree
-    				AstNode child1 = simplifyHelper(variables, nodes.get(0));
-    				AstNode child2 = simplifyHelper(variables, nodes.get(1));
-    				// performs the 'operation' if the nodes are of type numeric
-    				if (!name.equals("/") && child1.isNumber() && child2.isNumber()) {
-    					return new AstNode(toDoubleHelper(variables, node));
+    		} else if (!node.canFold() && node.getVariableSummary() != null
+    				&& !memo.definesAny(node.getVariableSummary())) {
+    			// nothing in here can be folded or substituted, so it's already simplified
+    			return node;
+    		} else if (node.getChildren().isEmpty()) {
+    			return node;
+    		}
+    		return null;
+    }
+
+    private static boolean isArithmetic(Opcode opcode) {
+    		return opcode == Opcode.PLUS || opcode == Opcode.MINUS
+    				|| opcode == Opcode.MULTIPLY || opcode == Opcode.DIVIDE;
+    }
+
+    /*
+     * Pops the simplified children of the operation off the work stack and returns the
+     * simplified operation
+     */
+    private static AstNode rebuild(AstNode node, WorkStack work) {
+    		String name = node.getName();
+    		Opcode opcode = node.getOpcode();
+    		IList<AstNode> nodes = node.getChildren();
+    		if (isArithmetic(opcode)) {
+    			AstNode child2 = work.popResult();
+    			AstNode child1 = work.popResult();
+    			// performs the 'operation' if the nodes are of type numeric
+    			if (opcode != Opcode.DIVIDE && child1.isNumber() && child2.isNumber()) {
+    				// the children are already evaluated, so there's no need to evaluate them again
+    				double left = child1.getNumericValue();
+    				double right = child2.getNumericValue();
+    				if (opcode == Opcode.PLUS) {
+    					return new AstNode(left + right);
+    				} else if (opcode == Opcode.MINUS) {
+    					return new AstNode(left - right);
     				} else {
-    					nodes.set(0, child1);
-    					nodes.set(1, child2);
-    					// returns a new node with updated child nodes
-    					return new AstNode(name, nodes);
+    					return new AstNode(left * right);
     				}
+    			} else if (child1 == nodes.get(0) && child2 == nodes.get(1)) {
+    				// already simplified, so the node can be shared instead of copied
+    				return node;
     			} else {
-    				AstNode child = simplifyHelper(variables, nodes.get(0));
-    				nodes.set(0, child);
     				// returns a new node with updated child nodes
-    				return new AstNode(name, nodes);
+    				return new AstNode(name, ImmutableList.of(child1, child2));
+    			}
+    		} else {
+    			AstNode first = work.popResult();
+    			if (first == nodes.get(0)) {
+    				return node;
     			}
+    			// returns a new node with the first child simplified
+    			AstNode[] children = new AstNode[nodes.size()];
+    			for (int i = 0; i < children.length; i++) {
+    				children[i] = nodes.get(i);
+    			}
+    			children[0] = first;
+    			return new AstNode(name, ImmutableList.of(children));
     		}
-	}
+    }
 
     /*
      * Takes a node with plot parameters and env object as parameters
      * Uses the plot parameters to generate the x-values and y-values for the plot
      * Plots the function and returns the expression.
+     *
+     * With a step, every point is known up front, so the expression is evaluated over
+     * all of them at once by a ColumnEvaluator.
+     *
+     * If the step is left out, as in plot(exp, var, min, max), the points are chosen by
+     * AdaptiveSampler instead: it spends a budget based on the width of the plot on the
+     * parts of the curve that change quickly, rather than sampling evenly.
      * 
      * throws EvaluationError if:
      * - expressions contain undefined variables
      * - if the lower bound of the plot is greater than the upper bound
      * - if var is already defined
      * - if step (the value to increment by) is <= 0
+     * - if the step is so small that the plot would have more than MAX_PLOT_POINTS points
      */
     public static AstNode plot(Environment env, AstNode node) {
     		// get the plot parameters
     		IList<AstNode> params = node.getChildren();
-    		// simplify varMin, varMax and step values
-    		for (int i = 2; i < params.size(); i++) {
-    			AstNode input = params.get(i);
-			input = new AstNode(toDoubleHelper(env.getVariables(), input));
-			params.set(i, input); // update
-    		}
     		AstNode exp = params.get(0); // expression
     		AstNode var = params.get(1); // variable
-    		AstNode min = params.get(2); // min bound for x
-    		AstNode max = params.get(3); // max bound for x
-    		AstNode step = params.get(4); // interval size
-    		if (env.getVariables().containsKey(var.getName())
-			||(min.getNumericValue() > max.getNumericValue()) 
-			|| step.getNumericValue() <= 0 
-			|| env.getVariables().containsKey(var.getName())) {
+    		boolean adaptive = params.size() == 4;
+    		// simplify varMin, varMax and step values
+    		VariableMemo memo = new VariableMemo(env);
+    		double min = toDoubleHelper(env, memo, params.get(2)); // min bound for x
+    		double max = toDoubleHelper(env, memo, params.get(3)); // max bound for x
+    		double step = adaptive ? 0 : toDoubleHelper(env, memo, params.get(4)); // interval size
+    		if (env.lookupVariable(var.getName()) != null || min > max || (!adaptive && step <= 0)) {
     			throw new EvaluationError("");
     		}
-    		// number of values to generate given the min and the max
-    		double numIterations = (max.getNumericValue() - min.getNumericValue()) / step.getNumericValue();
-    		IList<Double> xValues = new DoubleLinkedList<Double>();
-    		IList<Double> yValues = new DoubleLinkedList<Double>();
-    		for (int i = 0; i <= (int) numIterations; i++) {
-    			double x = min.getNumericValue() + (i * step.getNumericValue());
-    			xValues.add(x);
-    			// populate the variables dictionary
-    			env.getVariables().put(var.getName(), new AstNode(x));
-    			double y = toDoubleHelper(env.getVariables(), exp);
-    			yValues.add(y);	
+    		AstNode body = exp;
+    		if (!memo.dependsOn(exp.getFreeVariables(), var.getName())) {
+    			// the expression doesn't change with var, so only its value needs compiling
+    			body = new AstNode(toDoubleHelper(env, memo, exp));
+    		}
+    		double[] xValues;
+    		double[] yValues;
+    		if (adaptive) {
+    			Supplier<DoubleUnaryOperator> sampler = sampler(env, body, var.getName());
+    			ImageDrawer drawer = env.getImageDrawer();
+    			int width = drawer.getWidth() > 0 ? drawer.getWidth() : DEFAULT_PLOT_SIZE;
+    			int height = drawer.getHeight() > 0 ? drawer.getHeight() : DEFAULT_PLOT_SIZE;
+    			AdaptiveSampler samples = AdaptiveSampler.sample(sampler.get(), min, max, width, height);
+    			xValues = samples.getXValues();
+    			yValues = samples.getYValues();
+    		} else {
+    			// number of values to generate given the min and the max; a huge range or a
+    			// tiny step could overflow an int, so it's checked as a double first
+    			double count = Math.floor((max - min) / step) + 1;
+    			if (!(count <= MAX_PLOT_POINTS)) {
+    				throw new EvaluationError(String.format(
+    						"Plot would have more than %d points; use a larger step", (long) MAX_PLOT_POINTS));
+    			}
+    			int numPoints = (int) count;
+    			ColumnEvaluator evaluator = ColumnEvaluator.compile(env, body, var.getName());
+    			xValues = new double[numPoints];
+    			yValues = new double[numPoints];
+    			// sample in parallel; each task writes only its own part of the arrays
+    			ForkJoinPool.commonPool().invoke(new SampleTask(evaluator, min, step, xValues, yValues, 0, numPoints));
     		}
-    		env.getVariables().remove(var.getName()); // reset the variable dictionary
     		// draw scatter plot
-    		env.getImageDrawer().drawScatterPlot("Plot", var.getName(), "output", xValues, yValues);
+    		env.getImageDrawer().drawScatterPlot("Plot", var.getName(), "output", new DoubleList(xValues), new DoubleList(yValues));
     		return exp;
     }
+
+    /*
+     * Returns true if 'exp' refers to 'var', either directly or through the definitions
+     * of the variables it refers to.
+     */
+    public static boolean dependsOn(Environment env, AstNode exp, String var) {
+    		VariableStore store = env.getVariableStore();
+    		if (store != null) {
+    			// the store already keeps track of which variables refer to which
+    			return store.dependsOn(exp, var);
+    		}
+    		return new VariableMemo(env).dependsOn(exp.getFreeVariables(), var);
+    }
+
+    /*
+     * Returns a source of functions that evaluate 'exp' for a given value of 'var', for
+     * plots whose points are chosen one at a time.
+     *
+     * Whenever possible, the expression is compiled to bytecode. If it can't be
+     * (for example, because it's too large for a single JVM method), it's compiled
+     * for the stack machine in StackProgram instead. Either way, sampling never
+     * walks the AST or modifies the environment.
+     *
+     * Each call to the returned supplier gives a function that may be used at the
+     * same time as the others, so every thread sampling the plot should get its own.
+     *
+     * throws EvaluationError if the expression uses an undefined variable or an unknown operation
+     */
+    private static Supplier<DoubleUnaryOperator> sampler(Environment env, AstNode exp, String var) {
+        DoubleUnaryOperator compiled = BytecodeCompiler.compile(env, exp, var);
+        if (compiled != null) {
+            // Compiled expressions keep no state, so they can be shared
+            return () -> compiled;
+        }
+        StackProgram program = StackProgram.compile(env, exp, var);
+        return program::copy;
+    }
+
+    /*
+     * The values of the variables resolved during a single call to toDouble, simplify or plot.
+     *
+     * A variable may be referred to many times in one expression, either directly or through
+     * the definitions of other variables; remembering its value means each one is evaluated
+     * only once per call, so a chain like 'x1 := x0 + x0', 'x2 := x1 + x1', ... takes linear
+     * rather than exponential time. It also keeps track of the variables currently being
+     * evaluated, to report definitions that refer back to themselves.
+     *
+     * When the environment's variables are kept in a VariableStore that can be used here,
+     * values are cached there instead, so they're also kept between calls.
+     */
+    private static class VariableMemo {
+        private final Environment env;
+        private final VariableStore store;
+        // shared by every traversal during this call, including the ones for definitions
+        private final WorkStack work;
+        private IDictionary<String, Double> values;
+        private IDictionary<String, AstNode> simplified;
+        private IDictionary<String, Boolean> inProgress;
+        // the variables definesAny has looked up, and whether each one is defined
+        private IDictionary<String, Boolean> defined;
+
+        public VariableMemo(Environment env) {
+            this.env = env;
+            this.store = env.getVariableStore();
+            this.work = env.getWorkStack();
+        }
+
+        public double getNumericValue(String name) {
+            if (this.store != null) {
+                return this.store.getNumericValue(name, definition -> toDoubleHelper(this.env, this, definition));
+            }
+            AstNode definition = this.env.lookupVariable(name);
+            if (definition == null) {
+                // If the expression contains an undefined variable, we give up.
+                throw new EvaluationError("Undefined variable: " + name);
+            } else if (definition.isNumber()) {
+                // nothing to remember
+                return definition.getNumericValue();
+            }
+            if (this.values == null) {
+                this.values = new ChainedHashDictionary<>();
+            }
+            Double value = this.values.getOrDefault(name, null);
+            if (value == null) {
+                this.enter(name);
+                try {
+                    value = toDoubleHelper(this.env, this, definition);
+                } finally {
+                    this.inProgress.remove(name);
+                }
+                this.values.put(name, value);
+            }
+            return value;
+        }
+
+        // returns null if the variable isn't defined
+        public AstNode getSimplified(String name) {
+            if (this.store != null) {
+                return this.store.getSimplified(name, definition -> simplifyHelper(this.env, this, definition));
+            }
+            AstNode definition = this.env.lookupVariable(name);
+            if (definition == null || definition.isNumber()) {
+                return definition;
+            }
+            if (this.simplified == null) {
+                this.simplified = new ChainedHashDictionary<>();
+            }
+            AstNode value = this.simplified.getOrDefault(name, null);
+            if (value == null) {
+                this.enter(name);
+                try {
+                    value = simplifyHelper(this.env, this, definition);
+                } finally {
+                    this.inProgress.remove(name);
+                }
+                this.simplified.put(name, value);
+            }
+            return value;
+        }
+
+        // returns true if any of the variables is defined
+        public boolean definesAny(VariableSet variables) {
+        		if (this.defined == null) {
+        			this.defined = new ChainedHashDictionary<>();
+        		}
+        		for (String name : variables.names) {
+        			// look up each variable the first time it's asked about
+        			Boolean defined = this.defined.getOrDefault(name, null);
+        			if (defined == null) {
+        				defined = this.env.lookupVariable(name) != null;
+        				this.defined.put(name, defined);
+        			}
+        			if (defined) {
+        				return true;
+        			}
+        		}
+        		return false;
+        }
+
+        // returns true if var is one of the variables, or appears in the definition of one
+        public boolean dependsOn(VariableSet variables, String var) {
+        		IDictionary<String, Boolean> visited = new ChainedHashDictionary<>();
+        		IList<VariableSet> pending = new DynamicArrayList<>();
+        		pending.add(variables);
+        		while (!pending.isEmpty()) {
+        			VariableSet next = pending.remove();
+        			if (next.contains(var)) {
+        				return true;
+        			}
+        			for (String name : next.getNames()) {
+        				AstNode definition = this.env.lookupVariable(name);
+        				if (definition != null && !visited.containsKey(name)) {
+        					visited.put(name, true);
+        					pending.add(definition.getFreeVariables());
+        				}
+        			}
+        		}
+        		return false;
+        }
+
+        private void enter(String name) {
+            if (this.inProgress == null) {
+                this.inProgress = new ChainedHashDictionary<>();
+            }
+            if (this.inProgress.containsKey(name)) {
+                throw new EvaluationError("Cyclic definition: " + name);
+            }
+            this.inProgress.put(name, true);
+        }
+    }
+
+    /*
+     * Samples an expression at the indices [start, end) of a plot, storing x = min + i * step
+     * in xValues[i] and the expression's value there in yValues[i].
+     *
+     * Ranges with more than SEQUENTIAL_THRESHOLD points are split in half and sampled in
+     * parallel. Since each index is computed the same way no matter which thread gets
+     * it, the results are identical to sampling the whole range in one loop.
+     */
+    private static class SampleTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private static final int SEQUENTIAL_THRESHOLD = 1 << 14;
+
+        private final ColumnEvaluator evaluator;
+        private final double min;
+        private final double step;
+        private final double[] xValues;
+        private final double[] yValues;
+        private final int start;
+        private final int end;
+
+        public SampleTask(ColumnEvaluator evaluator, double min, double step,
+                          double[] xValues, double[] yValues, int start, int end) {
+            this.evaluator = evaluator;
+            this.min = min;
+            this.step = step;
+            this.xValues = xValues;
+            this.yValues = yValues;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.end - this.start <= SEQUENTIAL_THRESHOLD) {
+                for (int i = this.start; i < this.end; i++) {
+                    this.xValues[i] = this.min + (i * this.step);
+                }
+                // a ColumnEvaluator keeps no state, so every task can share it
+                this.evaluator.evaluate(this.xValues, this.yValues, this.start, this.end);
+            } else {
+                int mid = (this.start + this.end) >>> 1;
+                invokeAll(new SampleTask(this.evaluator, this.min, this.step, this.xValues, this.yValues, this.start, mid),
+                          new SampleTask(this.evaluator, this.min, this.step, this.xValues, this.yValues, mid, this.end));
+            }
+        }
+    }
 }
@@ -0,0 +1,69 @@
+package calculator.ast;
+
+/**
+ * Identifies which operation an operation AstNode performs.
+ *
+ * Every operation node resolves its name to an opcode once, when it is
+ * constructed, so the evaluator can dispatch on the opcode instead of
+ * comparing strings each time it visits the node.
+ *
+ * Names we don't recognize (for example, calls to functions that don't
+ * exist) resolve to UNKNOWN.
+ */
+public enum Opcode {
+    PLUS("+"),
+    MINUS("-"),
+    MULTIPLY("*"),
+    DIVIDE("/"),
+    POW("^"),
+    NEGATE("negate"),
+    SIN("sin"),
+    COS("cos"),
+    SIMPLIFY("simplify"),
+    TO_DOUBLE("toDouble"),
+    PLOT("plot"),
+    BLOCK("block"),
+    ASSIGN("assign"),
+    QUIT("quit"),
+    EXIT("exit"),
+    UNKNOWN(null);
+
+    private final String name;
+
+    Opcode(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Returns the operation name this opcode was resolved from, or null
+     * if this is the UNKNOWN opcode.
+     */
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * Returns the opcode corresponding to the given operation name, or
+     * UNKNOWN if the name isn't one of the builtin operations.
+     */
+    public static Opcode fromName(String name) {
+        switch (name) {
+            case "+": return PLUS;
+            case "-": return MINUS;
+            case "*": return MULTIPLY;
+            case "/": return DIVIDE;
+            case "^": return POW;
+            case "negate": return NEGATE;
+            case "sin": return SIN;
+            case "cos": return COS;
+            case "simplify": return SIMPLIFY;
+            case "toDouble": return TO_DOUBLE;
+            case "plot": return PLOT;
+            case "block": return BLOCK;
+            case "assign": return ASSIGN;
+            case "quit": return QUIT;
+            case "exit": return EXIT;
+            default: return UNKNOWN;
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package calculator.ast;
+
+import datastructures.concrete.DynamicArrayList;
+import datastructures.interfaces.IList;
+
+import java.util.Arrays;
+
+/**
+ * An immutable set of variable names, stored as a sorted array.
+ *
+ * Checking whether two sets share a variable or combining them is a single merge
+ * over both arrays, which is what lets an AstNode keep the set of variables in its
+ * subtree. A set only takes space for the variables it actually contains, and
+ * nothing is shared between sets, so there's no global table of names to grow or
+ * to lock.
+ */
+public final class VariableSet {
+    public static final VariableSet EMPTY = new VariableSet(new String[0]);
+
+    // In increasing order, with no duplicates
+    final String[] names;
+
+    private VariableSet(String[] names) {
+        this.names = names;
+    }
+
+    /**
+     * Returns the set containing only the given variable.
+     */
+    public static VariableSet of(String name) {
+        return new VariableSet(new String[] {name});
+    }
+
+    /**
+     * Returns the set of variables in any of the given sets.
+     */
+    static VariableSet unionAll(IList<VariableSet> sets) {
+        if (sets.isEmpty()) {
+            return EMPTY;
+        } else if (sets.size() == 1) {
+            return sets.get(0);
+        }
+        int total = 0;
+        for (VariableSet set : sets) {
+            total += set.names.length;
+        }
+        // Sorting everything at once avoids merging the sets one at a time, which
+        // would copy the result so far for every set
+        String[] names = new String[total];
+        int offset = 0;
+        for (VariableSet set : sets) {
+            System.arraycopy(set.names, 0, names, offset, set.names.length);
+            offset += set.names.length;
+        }
+        Arrays.sort(names);
+        int size = 0;
+        for (int i = 0; i < names.length; i++) {
+            if (size == 0 || !names[i].equals(names[size - 1])) {
+                names[size++] = names[i];
+            }
+        }
+        return new VariableSet(size == names.length ? names : Arrays.copyOf(names, size));
+    }
+
+    /**
+     * Returns 'true' if the given variable is in this set.
+     */
+    public boolean contains(String name) {
+        return Arrays.binarySearch(this.names, name) >= 0;
+    }
+
+    public boolean isEmpty() {
+        return this.names.length == 0;
+    }
+
+    /**
+     * Returns the number of variables in this set.
+     */
+    public int size() {
+        return this.names.length;
+    }
+
+    /**
+     * Returns 'true' if this set and the other one have a variable in common.
+     */
+    public boolean intersects(VariableSet other) {
+        String[] left = this.names;
+        String[] right = other.names;
+        int i = 0;
+        int j = 0;
+        while (i < left.length && j < right.length) {
+            int order = left[i].compareTo(right[j]);
+            if (order < 0) {
+                i++;
+            } else if (order > 0) {
+                j++;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the set of variables in either set. If one of the sets already
+     * contains the other, that set is returned instead of a new one.
+     */
+    public VariableSet union(VariableSet other) {
+        if (this == other || other.names.length == 0) {
+            return this;
+        } else if (this.names.length == 0) {
+            return other;
+        }
+        // Count first, so nothing is allocated when one set already has every variable
+        int size = unionSize(this.names, other.names);
+        if (size == this.names.length) {
+            return this;
+        } else if (size == other.names.length) {
+            return other;
+        }
+        String[] names = new String[size];
+        int i = 0;
+        int j = 0;
+        for (int k = 0; k < size; k++) {
+            int order = i == this.names.length ? 1
+                    : j == other.names.length ? -1
+                    : this.names[i].compareTo(other.names[j]);
+            if (order <= 0) {
+                names[k] = this.names[i++];
+                if (order == 0) {
+                    j++;
+                }
+            } else {
+                names[k] = other.names[j++];
+            }
+        }
+        return new VariableSet(names);
+    }
+
+    private static int unionSize(String[] left, String[] right) {
+        int size = left.length + right.length;
+        int i = 0;
+        int j = 0;
+        while (i < left.length && j < right.length) {
+            int order = left[i].compareTo(right[j]);
+            if (order < 0) {
+                i++;
+            } else if (order > 0) {
+                j++;
+            } else {
+                size--;
+                i++;
+                j++;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Returns the names of the variables in this set, in alphabetical order.
+     */
+    public IList<String> getNames() {
+        IList<String> names = new DynamicArrayList<>();
+        for (String name : this.names) {
+            names.add(name);
+        }
+        return names;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof VariableSet)) {
+            return false;
+        }
+        return Arrays.equals(this.names, ((VariableSet) other).names);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(this.names);
+    }
+}
@@ -0,0 +1,142 @@
+package calculator.ast;
+
+/**
+ * The explicit stacks used to walk ASTs without recursion.
+ *
+ * Left-deep trees, such as the one the parser builds for a sum of 100,000 terms,
+ * are far deeper than the Java call stack allows, so the evaluator, simplify and
+ * the printer keep the nodes they're in the middle of visiting here instead. There
+ * are three stacks:
+ *
+ * - frames: a node being visited, together with the index of the next child to visit
+ * - values: doubles computed for children that haven't been combined yet
+ * - results: AstNodes computed for children that haven't been combined yet
+ *
+ * Traversals can nest on the same WorkStack (evaluating a variable's definition in
+ * the middle of evaluating an expression, for instance): each one only ever pops
+ * what it pushed itself, and calls 'truncate' with the depths it started at when
+ * it's done, even if it fails part way through.
+ *
+ * The arrays grow as needed and are kept between traversals, so reusing one
+ * WorkStack avoids allocating anything once it has grown large enough. A WorkStack
+ * must only be used by one thread at a time.
+ */
+public class WorkStack {
+    private static final int DEFAULT_CAPACITY = 64;
+
+    private AstNode[] nodes;
+    private int[] states;
+    private int frameDepth;
+
+    private double[] values;
+    private int valueDepth;
+
+    private AstNode[] results;
+    private int resultDepth;
+
+    public WorkStack() {
+        this.nodes = new AstNode[DEFAULT_CAPACITY];
+        this.states = new int[DEFAULT_CAPACITY];
+        this.values = new double[DEFAULT_CAPACITY];
+        this.results = new AstNode[DEFAULT_CAPACITY];
+    }
+
+    /**
+     * Starts visiting the given node; its first child is child 0.
+     */
+    public void pushFrame(AstNode node) {
+        if (this.frameDepth == this.nodes.length) {
+            AstNode[] newNodes = new AstNode[this.nodes.length * 2];
+            int[] newStates = new int[this.nodes.length * 2];
+            System.arraycopy(this.nodes, 0, newNodes, 0, this.frameDepth);
+            System.arraycopy(this.states, 0, newStates, 0, this.frameDepth);
+            this.nodes = newNodes;
+            this.states = newStates;
+        }
+        this.nodes[this.frameDepth] = node;
+        this.states[this.frameDepth] = 0;
+        this.frameDepth++;
+    }
+
+    /**
+     * Returns the node on top of the frame stack.
+     */
+    public AstNode peekFrame() {
+        return this.nodes[this.frameDepth - 1];
+    }
+
+    /**
+     * Returns the index of the next child of the top frame to visit, and moves on
+     * to the child after it.
+     */
+    public int nextChild() {
+        int next = this.states[this.frameDepth - 1];
+        this.states[this.frameDepth - 1] = next + 1;
+        return next;
+    }
+
+    /**
+     * Finishes visiting the node on top of the frame stack.
+     */
+    public void popFrame() {
+        this.frameDepth--;
+        this.nodes[this.frameDepth] = null;
+    }
+
+    public int getFrameDepth() {
+        return this.frameDepth;
+    }
+
+    public void pushValue(double value) {
+        if (this.valueDepth == this.values.length) {
+            double[] newValues = new double[this.values.length * 2];
+            System.arraycopy(this.values, 0, newValues, 0, this.valueDepth);
+            this.values = newValues;
+        }
+        this.values[this.valueDepth] = value;
+        this.valueDepth++;
+    }
+
+    public double popValue() {
+        this.valueDepth--;
+        return this.values[this.valueDepth];
+    }
+
+    public int getValueDepth() {
+        return this.valueDepth;
+    }
+
+    public void pushResult(AstNode result) {
+        if (this.resultDepth == this.results.length) {
+            AstNode[] newResults = new AstNode[this.results.length * 2];
+            System.arraycopy(this.results, 0, newResults, 0, this.resultDepth);
+            this.results = newResults;
+        }
+        this.results[this.resultDepth] = result;
+        this.resultDepth++;
+    }
+
+    public AstNode popResult() {
+        this.resultDepth--;
+        AstNode result = this.results[this.resultDepth];
+        this.results[this.resultDepth] = null;
+        return result;
+    }
+
+    public int getResultDepth() {
+        return this.resultDepth;
+    }
+
+    /**
+     * Pops everything above the given depths off each of the three stacks.
+     */
+    public void truncate(int frameDepth, int valueDepth, int resultDepth) {
+        while (this.frameDepth > frameDepth) {
+            this.popFrame();
+        }
+        this.valueDepth = Math.min(this.valueDepth, valueDepth);
+        while (this.resultDepth > resultDepth) {
+            this.popResult();
+        }
+    }
+}
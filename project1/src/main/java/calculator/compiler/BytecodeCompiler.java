@@ -0,0 +1,488 @@
+package calculator.compiler;
+
+import calculator.ast.AstNode;
+import calculator.ast.WorkStack;
+import calculator.errors.EvaluationError;
+import calculator.interpreter.Environment;
+import datastructures.concrete.dictionaries.ChainedHashDictionary;
+import datastructures.interfaces.IDictionary;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * Compiles an expression into a JVM class, so it can be evaluated many times
+ * (for example, once per sample in 'plot') without walking the AST each time.
+ *
+ * The expression is compiled as a function of a single parameter variable.
+ * Every other variable must be defined in the environment: its definition is
+ * compiled inline, exactly as toDouble would evaluate it, where the variable is
+ * first used, and kept in a local variable for any later uses. The generated class
+ * implements DoubleUnaryOperator and its 'applyAsDouble' method contains the
+ * expression as straight-line bytecode, with no branches, loops or lookups.
+ *
+ * We write the class file by hand and load it with a private ClassLoader,
+ * so this needs neither an external compiler nor any extra libraries.
+ */
+public class BytecodeCompiler {
+    private static final String PACKAGE = "calculator/compiler/generated/";
+    private static final String INTERFACE = "java/util/function/DoubleUnaryOperator";
+
+    // Limits imposed by the class file format
+    private static final int MAX_CODE_LENGTH = 65535;
+    private static final int MAX_STACK = 65535;
+    private static final int MAX_LOCALS = 65535;
+
+    // The local variables 'this' and the parameter (a double) take up
+    private static final int FIRST_LOCAL = 3;
+
+    // Opcodes used by the generated code
+    private static final int ALOAD_0 = 0x2a;
+    private static final int DCONST_0 = 0x0e;
+    private static final int DCONST_1 = 0x0f;
+    private static final int LDC2_W = 0x14;
+    private static final int DLOAD = 0x18;
+    private static final int DLOAD_1 = 0x27;
+    private static final int DSTORE = 0x39;
+    private static final int DUP2 = 0x5c;
+    private static final int DADD = 0x63;
+    private static final int DSUB = 0x67;
+    private static final int DMUL = 0x6b;
+    private static final int DDIV = 0x6f;
+    private static final int DNEG = 0x77;
+    private static final int I2D = 0x87;
+    private static final int D2I = 0x8e;
+    private static final int DRETURN = 0xaf;
+    private static final int RETURN = 0xb1;
+    private static final int INVOKESPECIAL = 0xb7;
+    private static final int INVOKESTATIC = 0xb8;
+    private static final int WIDE = 0xc4;
+
+    private static int classCount = 0;
+
+    private final Environment env;
+    private final String parameter;
+    private final ConstantPool pool;
+    private final InlinedDefinitions definitions;
+    private final ByteArrayOutputStream code;
+    private int stackDepth;
+    private int maxStackDepth;
+
+    private BytecodeCompiler(Environment env, String parameter) {
+        this.env = env;
+        this.parameter = parameter;
+        this.pool = new ConstantPool();
+        this.definitions = new InlinedDefinitions();
+        this.code = new ByteArrayOutputStream();
+        this.stackDepth = 0;
+        this.maxStackDepth = 0;
+    }
+
+    /**
+     * Compiles the given expression into a function of the given parameter.
+     *
+     * Returns null if the expression can't be turned into a class: either because
+     * it is too large for a single JVM method, or because we're not allowed to
+     * define classes at runtime. Callers should fall back to evaluating the AST
+     * directly in that case.
+     *
+     * @throws EvaluationError  if the expression contains an undefined variable
+     *                          (other than the parameter), a variable whose definition
+     *                          refers back to itself, or an unknown operation.
+     */
+    public static DoubleUnaryOperator compile(Environment env, AstNode expression, String parameter) {
+        BytecodeCompiler compiler = new BytecodeCompiler(env, parameter);
+        WorkStack work = env.getWorkStack();
+        int frameDepth = work.getFrameDepth();
+        try {
+            compiler.emitExpression(work, expression);
+        } catch (TooLargeException ex) {
+            return null;
+        } finally {
+            work.truncate(frameDepth, work.getValueDepth(), work.getResultDepth());
+        }
+        return compiler.load();
+    }
+
+    /** Helper method
+     *  Emits the given node, children before parents. The tree is walked with the work
+     *  stack rather than recursion, so an expression too deep for the Java call stack
+     *  just ends up too large for a method instead.
+     */
+    private void emitExpression(WorkStack work, AstNode root) {
+        int frameDepth = work.getFrameDepth();
+        work.pushFrame(root);
+        while (work.getFrameDepth() > frameDepth) {
+            AstNode node = work.peekFrame();
+            int next = work.nextChild();
+            if (node.isNumber()) {
+                this.emitConstant(node.getNumericValue());
+                work.popFrame();
+            } else if (node.isVariable()) {
+                if (next == 0) {
+                    this.emitVariable(work, node.getName());
+                } else {
+                    // The definition has been emitted; save a copy of its value
+                    int local = this.definitions.exit(node.getName());
+                    this.emit(DUP2);
+                    this.push();
+                    this.emitLocal(DSTORE, local);
+                    this.pop();
+                    work.popFrame();
+                }
+            } else if (next < operandCount(node)) {
+                work.pushFrame(node.getChildren().get(next));
+            } else {
+                this.emitOperation(node);
+                work.popFrame();
+            }
+        }
+    }
+
+    private void emitConstant(double value) {
+        if (Double.doubleToRawLongBits(value) == 0L) {
+            this.emit(DCONST_0);
+        } else if (value == 1.0) {
+            this.emit(DCONST_1);
+        } else {
+            this.emit(LDC2_W);
+            this.emitShort(this.pool.addDouble(value));
+        }
+        this.push();
+    }
+
+    /** Helper method
+     *  Emits the parameter, or the value of a variable. A variable's definition is pushed
+     *  onto the work stack, to be emitted inline, the first time it's used, and its local
+     *  is read every time after that. The variable's frame is popped unless its definition
+     *  was pushed.
+     */
+    private void emitVariable(WorkStack work, String name) {
+        if (name.equals(this.parameter)) {
+            this.emit(DLOAD_1);
+            this.push();
+            work.popFrame();
+            return;
+        }
+        AstNode definition = this.env.lookupVariable(name);
+        if (definition == null) {
+            throw new EvaluationError("Undefined variable: " + name);
+        } else if (definition.isNumber()) {
+            // A constant is just as cheap as reading a local
+            this.emitConstant(definition.getNumericValue());
+            work.popFrame();
+            return;
+        }
+        int local = this.definitions.lookup(name);
+        if (local < 0) {
+            this.definitions.enter(name);
+            work.pushFrame(definition);
+        } else {
+            this.emitLocal(DLOAD, local);
+            this.push();
+            work.popFrame();
+        }
+    }
+
+    private static int operandCount(AstNode node) {
+        switch (node.getOpcode()) {
+            case PLUS:
+            case MINUS:
+            case MULTIPLY:
+            case DIVIDE:
+            case POW:
+                return 2;
+            case NEGATE:
+            case SIN:
+            case COS:
+                return 1;
+            default:
+                throw new EvaluationError("Unknown operation: " + node.getName());
+        }
+    }
+
+    /** Helper method
+     *  Emits the instructions for an operation whose operands are already on the stack.
+     */
+    private void emitOperation(AstNode node) {
+        switch (node.getOpcode()) {
+            case PLUS:
+                this.emitBinary(DADD);
+                break;
+            case MINUS:
+                this.emitBinary(DSUB);
+                break;
+            case MULTIPLY:
+                this.emitBinary(DMUL);
+                break;
+            case DIVIDE:
+                this.emitBinary(DDIV);
+                break;
+            case POW:
+                // The exponent is truncated to an int, the same way toDouble does it
+                this.emit(D2I);
+                this.emit(I2D);
+                this.emitInvokeMath("pow", "(DD)D");
+                this.pop();
+                break;
+            case NEGATE:
+                this.emit(DNEG);
+                break;
+            case SIN:
+                this.emitInvokeMath("sin", "(D)D");
+                break;
+            case COS:
+                this.emitInvokeMath("cos", "(D)D");
+                break;
+            default:
+                throw new EvaluationError("Unknown operation: " + node.getName());
+        }
+    }
+
+    private void emitLocal(int opcode, int local) {
+        int index = FIRST_LOCAL + 2 * local;
+        if (index + 2 > MAX_LOCALS) {
+            throw new TooLargeException();
+        } else if (index > 0xFF) {
+            this.emit(WIDE);
+            this.emit(opcode);
+            this.emitShort(index);
+        } else {
+            this.emit(opcode);
+            this.code.write(index);
+        }
+    }
+
+    private void emitBinary(int opcode) {
+        this.emit(opcode);
+        this.pop();
+    }
+
+    private void emitInvokeMath(String name, String descriptor) {
+        this.emit(INVOKESTATIC);
+        this.emitShort(this.pool.addMethodRef("java/lang/Math", name, descriptor));
+    }
+
+    private void emit(int opcode) {
+        if (this.code.size() >= MAX_CODE_LENGTH) {
+            throw new TooLargeException();
+        }
+        this.code.write(opcode);
+    }
+
+    private void emitShort(int value) {
+        this.code.write(value >>> 8);
+        this.code.write(value);
+    }
+
+    /** Helper method
+     *  Records that the last instruction pushed one more double onto the operand stack.
+     *  Every double takes up two stack slots.
+     */
+    private void push() {
+        this.stackDepth += 2;
+        if (this.stackDepth > this.maxStackDepth) {
+            this.maxStackDepth = this.stackDepth;
+            if (this.maxStackDepth > MAX_STACK) {
+                throw new TooLargeException();
+            }
+        }
+    }
+
+    private void pop() {
+        this.stackDepth -= 2;
+    }
+
+    /** Helper method
+     *  Assembles the class file and loads it, returning a new instance.
+     */
+    private DoubleUnaryOperator load() {
+        String className;
+        synchronized (BytecodeCompiler.class) {
+            classCount++;
+            className = PACKAGE + "Expression" + classCount;
+        }
+        byte[] bytes = this.assemble(className);
+        try {
+            Class<?> cls = new ExpressionLoader().define(className.replace('/', '.'), bytes);
+            return (DoubleUnaryOperator) cls.getConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError | SecurityException ex) {
+            return null;
+        }
+    }
+
+    private byte[] assemble(String className) {
+        // Register everything the class refers to before writing out the pool
+        int thisClass = this.pool.addClass(className);
+        int superClass = this.pool.addClass("java/lang/Object");
+        int iface = this.pool.addClass(INTERFACE);
+        int objectInit = this.pool.addMethodRef("java/lang/Object", "<init>", "()V");
+        int initName = this.pool.addUtf8("<init>");
+        int initDescriptor = this.pool.addUtf8("()V");
+        int applyName = this.pool.addUtf8("applyAsDouble");
+        int applyDescriptor = this.pool.addUtf8("(D)D");
+        int codeAttribute = this.pool.addUtf8("Code");
+
+        this.emit(DRETURN);
+        byte[] body = this.code.toByteArray();
+        byte[] init = {
+            (byte) ALOAD_0,
+            (byte) INVOKESPECIAL, (byte) (objectInit >>> 8), (byte) objectInit,
+            (byte) RETURN,
+        };
+
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);   // minor version
+            out.writeShort(52);  // major version: Java 8
+            this.pool.writeTo(out);
+            out.writeShort(0x0001 | 0x0010 | 0x0020);  // public final super
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(1);
+            out.writeShort(iface);
+            out.writeShort(0);  // no fields
+            out.writeShort(2);  // two methods
+            writeMethod(out, initName, initDescriptor, codeAttribute, 1, 1, init);
+            int maxLocals = FIRST_LOCAL + 2 * this.definitions.size();
+            writeMethod(out, applyName, applyDescriptor, codeAttribute, this.maxStackDepth, maxLocals, body);
+            out.writeShort(0);  // no class attributes
+            return bytes.toByteArray();
+        } catch (IOException ex) {
+            throw new AssertionError(ex);
+        }
+    }
+
+    private static void writeMethod(DataOutputStream out, int name, int descriptor, int codeAttribute,
+                                    int maxStack, int maxLocals, byte[] code) throws IOException {
+        out.writeShort(0x0001);  // public
+        out.writeShort(name);
+        out.writeShort(descriptor);
+        out.writeShort(1);
+        out.writeShort(codeAttribute);
+        out.writeInt(12 + code.length);
+        out.writeShort(maxStack);
+        out.writeShort(maxLocals);
+        out.writeInt(code.length);
+        out.write(code);
+        out.writeShort(0);  // no exception handlers
+        out.writeShort(0);  // no code attributes
+    }
+
+    /**
+     * The constant pool of the class being generated. Identical entries are only
+     * added once.
+     */
+    private static class ConstantPool {
+        private static final int UTF8 = 1;
+        private static final int DOUBLE = 6;
+        private static final int CLASS = 7;
+        private static final int METHOD_REF = 10;
+        private static final int NAME_AND_TYPE = 12;
+
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(this.bytes);
+        private final IDictionary<String, Integer> indices = new ChainedHashDictionary<>();
+        private int nextIndex = 1;
+
+        public int addUtf8(String value) {
+            Integer index = this.indices.getOrDefault("U" + value, null);
+            if (index != null) {
+                return index;
+            }
+            try {
+                this.out.writeByte(UTF8);
+                this.out.writeUTF(value);
+            } catch (IOException ex) {
+                throw new AssertionError(ex);
+            }
+            return this.record("U" + value, 1);
+        }
+
+        public int addDouble(double value) {
+            long bits = Double.doubleToRawLongBits(value);
+            Integer index = this.indices.getOrDefault("D" + bits, null);
+            if (index != null) {
+                return index;
+            }
+            try {
+                this.out.writeByte(DOUBLE);
+                this.out.writeLong(bits);
+            } catch (IOException ex) {
+                throw new AssertionError(ex);
+            }
+            // Doubles take up two entries in the constant pool
+            return this.record("D" + bits, 2);
+        }
+
+        public int addClass(String name) {
+            return this.addReference("C" + name, CLASS, this.addUtf8(name), -1);
+        }
+
+        public int addMethodRef(String owner, String name, String descriptor) {
+            int ownerIndex = this.addClass(owner);
+            int nameAndType = this.addReference(
+                    "N" + name + descriptor, NAME_AND_TYPE, this.addUtf8(name), this.addUtf8(descriptor));
+            return this.addReference("M" + owner + "." + name + descriptor, METHOD_REF, ownerIndex, nameAndType);
+        }
+
+        private int addReference(String key, int tag, int first, int second) {
+            Integer index = this.indices.getOrDefault(key, null);
+            if (index != null) {
+                return index;
+            }
+            try {
+                this.out.writeByte(tag);
+                this.out.writeShort(first);
+                if (second >= 0) {
+                    this.out.writeShort(second);
+                }
+            } catch (IOException ex) {
+                throw new AssertionError(ex);
+            }
+            return this.record(key, 1);
+        }
+
+        private int record(String key, int width) {
+            if (this.nextIndex + width > 0xFFFF) {
+                throw new TooLargeException();
+            }
+            int index = this.nextIndex;
+            this.indices.put(key, index);
+            this.nextIndex += width;
+            return index;
+        }
+
+        public void writeTo(DataOutputStream dest) throws IOException {
+            dest.writeShort(this.nextIndex);
+            this.bytes.writeTo(dest);
+        }
+    }
+
+    /**
+     * Loads a single generated class. Each class gets its own loader so that it
+     * can be garbage collected once nothing uses it anymore.
+     */
+    private static class ExpressionLoader extends ClassLoader {
+        public ExpressionLoader() {
+            super(BytecodeCompiler.class.getClassLoader());
+        }
+
+        public Class<?> define(String name, byte[] bytes) {
+            return this.defineClass(name, bytes, 0, bytes.length);
+        }
+    }
+
+    /**
+     * Signals that the expression doesn't fit in a single JVM method.
+     */
+    private static class TooLargeException extends RuntimeException {
+        public TooLargeException() {
+            super(null, null, false, false);
+        }
+    }
+}
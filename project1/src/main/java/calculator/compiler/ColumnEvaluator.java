@@ -0,0 +1,211 @@
+package calculator.compiler;
+
+import static calculator.compiler.PostfixCode.*;
+
+import calculator.ast.AstNode;
+import calculator.errors.EvaluationError;
+import calculator.interpreter.Environment;
+
+import java.util.Arrays;
+
+/**
+ * Evaluates an expression over a whole array of inputs at once.
+ *
+ * The expression is flattened into the same postfix instructions StackProgram runs, but
+ * each entry on the operand stack is a column of values rather than a single value.
+ * Every instruction then runs as one tight loop across the column: adding two columns,
+ * for example, is a single loop over two double[]s. This way the cost of dispatching
+ * on each instruction is paid once per column instead of once per point, and the
+ * loops for the arithmetic instructions are simple enough for the JIT to turn into
+ * SIMD instructions.
+ *
+ * The inputs are processed in chunks of at most CHUNK_SIZE values so that all of the
+ * columns on the stack stay in the CPU cache. Expressions that need many columns at
+ * once get shorter chunks, keeping the total under MAX_CHUNK_VALUES.
+ *
+ * Like StackProgram, each variable definition the expression uses is evaluated once,
+ * where it's first needed, and kept in a column of its own for any later uses.
+ *
+ * A ColumnEvaluator keeps no state between evaluations, so it may be used from several
+ * threads at once.
+ */
+public class ColumnEvaluator {
+    private static final int CHUNK_SIZE = 1024;
+    private static final int MAX_CHUNK_VALUES = 1 << 16;
+
+    private final int[] code;
+    private final double[] constants;
+    private final int maxStackDepth;
+    private final int localCount;
+    private final int chunkSize;
+
+    private ColumnEvaluator(int[] code, double[] constants, int maxStackDepth, int localCount) {
+        this.code = code;
+        this.constants = constants;
+        this.maxStackDepth = maxStackDepth;
+        this.localCount = localCount;
+        int columns = Math.max(1, maxStackDepth + localCount);
+        this.chunkSize = Math.max(1, Math.min(CHUNK_SIZE, MAX_CHUNK_VALUES / columns));
+    }
+
+    /**
+     * Compiles the given expression into an evaluator whose input is the given variable.
+     *
+     * @throws EvaluationError  if the expression contains an undefined variable
+     *                          (other than the input variable), an unknown operation,
+     *                          or a variable whose definition refers back to itself.
+     */
+    public static ColumnEvaluator compile(Environment env, AstNode expression, String variable) {
+        PostfixCode postfix = PostfixCode.compile(env, expression, variable);
+        return new ColumnEvaluator(postfix.code, postfix.constants, postfix.maxStackDepth, postfix.localCount);
+    }
+
+    /**
+     * Returns a new array holding the value of the expression at each of the given inputs.
+     */
+    public double[] evaluate(double[] inputs) {
+        double[] outputs = new double[inputs.length];
+        this.evaluate(inputs, outputs, 0, inputs.length);
+        return outputs;
+    }
+
+    /**
+     * Evaluates the expression at inputs[start] through inputs[end - 1], and stores the
+     * results at the same indices of 'outputs'.
+     *
+     * @throws IndexOutOfBoundsException  if the range doesn't fit in either array
+     */
+    public void evaluate(double[] inputs, double[] outputs, int start, int end) {
+        if (start < 0 || start > end || end > inputs.length || end > outputs.length) {
+            throw new IndexOutOfBoundsException("Range " + start + " to " + end);
+        }
+        int chunkSize = Math.min(this.chunkSize, end - start);
+        double[][] stack = new double[this.maxStackDepth][chunkSize];
+        double[][] locals = new double[this.localCount][chunkSize];
+        for (int offset = start; offset < end; offset += chunkSize) {
+            int length = Math.min(chunkSize, end - offset);
+            this.evaluateChunk(stack, locals, inputs, offset, length);
+            System.arraycopy(stack[0], 0, outputs, offset, length);
+        }
+    }
+
+    private void evaluateChunk(double[][] stack, double[][] locals, double[] inputs, int offset, int length) {
+        int[] code = this.code;
+        int top = -1;
+        int pc = 0;
+        while (pc < code.length) {
+            switch (code[pc]) {
+                case CONST:
+                    Arrays.fill(stack[++top], 0, length, this.constants[code[pc + 1]]);
+                    pc += 2;
+                    break;
+                case LOAD:
+                    // There's only one parameter, so the operand is always 0
+                    System.arraycopy(inputs, offset, stack[++top], 0, length);
+                    pc += 2;
+                    break;
+                case STORE:
+                    // Leaves the column on the stack
+                    System.arraycopy(stack[top], 0, locals[code[pc + 1]], 0, length);
+                    pc += 2;
+                    break;
+                case LOAD_LOCAL:
+                    System.arraycopy(locals[code[pc + 1]], 0, stack[++top], 0, length);
+                    pc += 2;
+                    break;
+                case ADD:
+                    top--;
+                    add(stack[top], stack[top + 1], length);
+                    pc++;
+                    break;
+                case SUBTRACT:
+                    top--;
+                    subtract(stack[top], stack[top + 1], length);
+                    pc++;
+                    break;
+                case MULTIPLY:
+                    top--;
+                    multiply(stack[top], stack[top + 1], length);
+                    pc++;
+                    break;
+                case DIVIDE:
+                    top--;
+                    divide(stack[top], stack[top + 1], length);
+                    pc++;
+                    break;
+                case POW:
+                    top--;
+                    pow(stack[top], stack[top + 1], length);
+                    pc++;
+                    break;
+                case NEGATE:
+                    negate(stack[top], length);
+                    pc++;
+                    break;
+                case SIN:
+                    sin(stack[top], length);
+                    pc++;
+                    break;
+                case COS:
+                    cos(stack[top], length);
+                    pc++;
+                    break;
+                default:
+                    throw new AssertionError("Unknown instruction " + code[pc]);
+            }
+        }
+    }
+
+    // Each of these stores its result in its first argument. They are kept as separate
+    // methods so that each loop is small enough for the JIT to compile and vectorize
+    // on its own.
+
+    private static void add(double[] left, double[] right, int length) {
+        for (int i = 0; i < length; i++) {
+            left[i] = left[i] + right[i];
+        }
+    }
+
+    private static void subtract(double[] left, double[] right, int length) {
+        for (int i = 0; i < length; i++) {
+            left[i] = left[i] - right[i];
+        }
+    }
+
+    private static void multiply(double[] left, double[] right, int length) {
+        for (int i = 0; i < length; i++) {
+            left[i] = left[i] * right[i];
+        }
+    }
+
+    private static void divide(double[] left, double[] right, int length) {
+        for (int i = 0; i < length; i++) {
+            left[i] = left[i] / right[i];
+        }
+    }
+
+    private static void pow(double[] left, double[] right, int length) {
+        // The exponent is truncated to an int, the same way toDouble does it
+        for (int i = 0; i < length; i++) {
+            left[i] = Math.pow(left[i], (int) right[i]);
+        }
+    }
+
+    private static void negate(double[] values, int length) {
+        for (int i = 0; i < length; i++) {
+            values[i] = -values[i];
+        }
+    }
+
+    private static void sin(double[] values, int length) {
+        for (int i = 0; i < length; i++) {
+            values[i] = Math.sin(values[i]);
+        }
+    }
+
+    private static void cos(double[] values, int length) {
+        for (int i = 0; i < length; i++) {
+            values[i] = Math.cos(values[i]);
+        }
+    }
+}
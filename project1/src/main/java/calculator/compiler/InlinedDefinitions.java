@@ -0,0 +1,70 @@
+package calculator.compiler;
+
+import calculator.errors.EvaluationError;
+import datastructures.concrete.dictionaries.ChainedHashDictionary;
+import datastructures.interfaces.IDictionary;
+
+/**
+ * Keeps track of the variable definitions a compiler has inlined.
+ *
+ * Each definition is compiled only once, where the variable is first used, and its
+ * value is saved in a numbered local so every later use just reads it back. Since
+ * compiled code runs straight through, the first use always runs before the others.
+ * Without this, a chain like 'a := b + b', 'b := c + c', ... would be inlined an
+ * exponential number of times.
+ *
+ * While a definition is being compiled, its variable is marked as in progress, so a
+ * definition that refers back to itself is reported rather than inlined forever.
+ */
+class InlinedDefinitions {
+    private static final int IN_PROGRESS = -1;
+
+    private final IDictionary<String, Integer> locals;
+    private int count;
+
+    public InlinedDefinitions() {
+        this.locals = new ChainedHashDictionary<>();
+        this.count = 0;
+    }
+
+    /**
+     * Returns the local holding the value of the given variable, or -1 if its
+     * definition hasn't been compiled yet.
+     *
+     * @throws EvaluationError  if the variable's definition is being compiled
+     */
+    public int lookup(String name) {
+        Integer local = this.locals.getOrDefault(name, null);
+        if (local == null) {
+            return -1;
+        } else if (local == IN_PROGRESS) {
+            throw new EvaluationError("Cyclic definition: " + name);
+        }
+        return local;
+    }
+
+    /**
+     * Marks the given variable's definition as being compiled.
+     */
+    public void enter(String name) {
+        this.locals.put(name, IN_PROGRESS);
+    }
+
+    /**
+     * Marks the given variable's definition as compiled, and returns the local its
+     * value should be saved in.
+     */
+    public int exit(String name) {
+        int local = this.count;
+        this.locals.put(name, local);
+        this.count++;
+        return local;
+    }
+
+    /**
+     * Returns how many locals have been handed out.
+     */
+    public int size() {
+        return this.count;
+    }
+}
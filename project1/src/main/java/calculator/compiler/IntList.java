@@ -0,0 +1,25 @@
+package calculator.compiler;
+
+/**
+ * A minimal growable int[] used to collect instructions.
+ */
+class IntList {
+    private int[] items = new int[16];
+    private int size = 0;
+
+    public void add(int value) {
+        if (this.size == this.items.length) {
+            int[] temp = new int[this.items.length * 2];
+            System.arraycopy(this.items, 0, temp, 0, this.size);
+            this.items = temp;
+        }
+        this.items[this.size] = value;
+        this.size++;
+    }
+
+    public int[] toArray() {
+        int[] out = new int[this.size];
+        System.arraycopy(this.items, 0, out, 0, this.size);
+        return out;
+    }
+}
@@ -0,0 +1,214 @@
+package calculator.compiler;
+
+import calculator.ast.AstNode;
+import calculator.ast.WorkStack;
+import calculator.errors.EvaluationError;
+import calculator.interpreter.Environment;
+import datastructures.concrete.DoubleList;
+
+/**
+ * An expression flattened into postfix instructions for a stack machine.
+ *
+ * This is the instruction format shared by StackProgram, which runs it one point at
+ * a time, and ColumnEvaluator, which runs it over whole columns of points. Each
+ * instruction is an int in 'code', and CONST, LOAD, STORE and LOAD_LOCAL are followed
+ * by a single operand:
+ *
+ * - CONST i: pushes constants[i]
+ * - LOAD i: pushes the value of the i-th parameter
+ * - STORE i: saves the value on top of the stack in local i, leaving it on the stack
+ * - LOAD_LOCAL i: pushes the value saved in local i
+ * - ADD through POW: pops two values and pushes the result
+ * - NEGATE, SIN and COS: replace the value on top of the stack
+ *
+ * Variables other than the parameters must be defined in the environment. Each
+ * definition is compiled inline where it's first used, and STOREd in a local for
+ * any later uses.
+ */
+final class PostfixCode {
+    static final int CONST = 0;
+    static final int LOAD = 1;
+    static final int ADD = 2;
+    static final int SUBTRACT = 3;
+    static final int MULTIPLY = 4;
+    static final int DIVIDE = 5;
+    static final int POW = 6;
+    static final int NEGATE = 7;
+    static final int SIN = 8;
+    static final int COS = 9;
+    static final int STORE = 10;
+    static final int LOAD_LOCAL = 11;
+
+    final int[] code;
+    final double[] constants;
+    final int maxStackDepth;
+    final int localCount;
+
+    private PostfixCode(int[] code, double[] constants, int maxStackDepth, int localCount) {
+        this.code = code;
+        this.constants = constants;
+        this.maxStackDepth = maxStackDepth;
+        this.localCount = localCount;
+    }
+
+    /**
+     * Flattens the given expression. The i-th parameter is read with LOAD i.
+     *
+     * The tree is walked with the environment's work stack rather than recursion, so
+     * expressions of any depth can be compiled.
+     *
+     * @throws EvaluationError  if the expression contains an undefined variable
+     *                          (other than the parameters), a variable whose definition
+     *                          refers back to itself, or an unknown operation.
+     */
+    static PostfixCode compile(Environment env, AstNode expression, String... parameters) {
+        Compiler compiler = new Compiler(env, parameters);
+        WorkStack work = env.getWorkStack();
+        int frameDepth = work.getFrameDepth();
+        try {
+            compiler.emitExpression(work, expression);
+        } finally {
+            work.truncate(frameDepth, work.getValueDepth(), work.getResultDepth());
+        }
+        return new PostfixCode(compiler.code.toArray(), compiler.constants.toArray(),
+                compiler.maxStackDepth, compiler.definitions.size());
+    }
+
+    /**
+     * Flattens an AST into instructions, tracking how deep the operand stack gets.
+     */
+    private static class Compiler {
+        private final Environment env;
+        private final String[] parameters;
+        private final IntList code;
+        private final DoubleList constants;
+        private final InlinedDefinitions definitions;
+        private int stackDepth;
+        private int maxStackDepth;
+
+        public Compiler(Environment env, String[] parameters) {
+            this.env = env;
+            this.parameters = parameters;
+            this.definitions = new InlinedDefinitions();
+            this.code = new IntList();
+            this.constants = new DoubleList();
+            this.stackDepth = 0;
+            this.maxStackDepth = 0;
+        }
+
+        /**
+         * Emits the given node, children before parents. A variable whose definition is
+         * being inlined stays on the work stack until the definition has been emitted,
+         * and its value is then saved in a local.
+         */
+        public void emitExpression(WorkStack work, AstNode root) {
+            int frameDepth = work.getFrameDepth();
+            work.pushFrame(root);
+            while (work.getFrameDepth() > frameDepth) {
+                AstNode node = work.peekFrame();
+                int next = work.nextChild();
+                if (node.isNumber()) {
+                    this.emitConstant(node.getNumericValue());
+                    work.popFrame();
+                } else if (node.isVariable()) {
+                    if (next == 0) {
+                        this.emitVariable(work, node.getName());
+                    } else {
+                        // The definition has been emitted, and its value is on the stack
+                        this.code.add(STORE);
+                        this.code.add(this.definitions.exit(node.getName()));
+                        work.popFrame();
+                    }
+                } else {
+                    int instruction = instructionFor(node);
+                    // ADD through POW are the instructions with two operands
+                    boolean binary = instruction <= POW;
+                    if (next < (binary ? 2 : 1)) {
+                        work.pushFrame(node.getChildren().get(next));
+                    } else {
+                        this.code.add(instruction);
+                        if (binary) {
+                            this.stackDepth--;
+                        }
+                        work.popFrame();
+                    }
+                }
+            }
+        }
+
+        // Emits a parameter or a read of the variable's local, or starts inlining its definition
+        // the first time it's used. The variable's frame is popped unless its definition is pushed.
+        private void emitVariable(WorkStack work, String name) {
+            int slot = this.slotOf(name);
+            if (slot >= 0) {
+                this.code.add(LOAD);
+                this.code.add(slot);
+                this.push();
+                work.popFrame();
+                return;
+            }
+            AstNode definition = this.env.lookupVariable(name);
+            if (definition == null) {
+                throw new EvaluationError("Undefined variable: " + name);
+            } else if (definition.isNumber()) {
+                this.emitConstant(definition.getNumericValue());
+                work.popFrame();
+                return;
+            }
+            int local = this.definitions.lookup(name);
+            if (local < 0) {
+                this.definitions.enter(name);
+                work.pushFrame(definition);
+            } else {
+                this.code.add(LOAD_LOCAL);
+                this.code.add(local);
+                this.push();
+                work.popFrame();
+            }
+        }
+
+        private void emitConstant(double value) {
+            this.code.add(CONST);
+            this.code.add(this.constants.size());
+            this.constants.add(value);
+            this.push();
+        }
+
+        private static int instructionFor(AstNode node) {
+            switch (node.getOpcode()) {
+                case PLUS:
+                    return ADD;
+                case MINUS:
+                    return SUBTRACT;
+                case MULTIPLY:
+                    return MULTIPLY;
+                case DIVIDE:
+                    return DIVIDE;
+                case POW:
+                    return POW;
+                case NEGATE:
+                    return NEGATE;
+                case SIN:
+                    return SIN;
+                case COS:
+                    return COS;
+                default:
+                    throw new EvaluationError("Unknown operation: " + node.getName());
+            }
+        }
+
+        private void push() {
+            this.stackDepth++;
+            this.maxStackDepth = Math.max(this.maxStackDepth, this.stackDepth);
+        }
+
+        private int slotOf(String name) {
+            for (int i = 0; i < this.parameters.length; i++) {
+                if (this.parameters[i].equals(name)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+}
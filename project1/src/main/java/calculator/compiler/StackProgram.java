@@ -0,0 +1,160 @@
+package calculator.compiler;
+
+import static calculator.compiler.PostfixCode.*;
+
+import calculator.ast.AstNode;
+import calculator.errors.EvaluationError;
+import calculator.interpreter.Environment;
+
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * An expression compiled into a flat list of instructions for a small stack machine.
+ *
+ * This is an alternative to BytecodeCompiler that doesn't need to define classes
+ * at runtime. The expression is flattened once by PostfixCode into an int[] of
+ * instructions; numbers go in a double[] constant pool, and each parameter
+ * variable is assigned a slot index. Evaluating the program is then a single loop
+ * over the instruction array using a preallocated double[] operand stack, so it
+ * allocates nothing and never touches the AST or the variables dictionary.
+ *
+ * As with BytecodeCompiler, variables other than the parameters must be defined
+ * in the environment, and their definitions are compiled inline where they're first
+ * used. Their values are kept in a double[] of locals for any later uses.
+ *
+ * A StackProgram reuses its operand stack between evaluations, so a single instance
+ * must not be evaluated from several threads at once; use 'copy' to get another
+ * instance that shares the same instructions.
+ */
+public class StackProgram implements DoubleUnaryOperator {
+    private final int[] code;
+    private final double[] constants;
+    private final String[] parameters;
+    private final double[] stack;
+    private final double[] locals;
+    private final double[] arguments;
+
+    private StackProgram(int[] code, double[] constants, String[] parameters, int maxStackDepth, int localCount) {
+        this.code = code;
+        this.constants = constants;
+        this.parameters = parameters;
+        this.stack = new double[maxStackDepth];
+        this.locals = new double[localCount];
+        this.arguments = new double[parameters.length];
+    }
+
+    /**
+     * Compiles the given expression into a program whose inputs are the given
+     * parameter variables. The i-th parameter is read from slot i.
+     *
+     * @throws EvaluationError  if the expression contains an undefined variable
+     *                          (other than the parameters), a variable whose definition
+     *                          refers back to itself, or an unknown operation.
+     */
+    public static StackProgram compile(Environment env, AstNode expression, String... parameters) {
+        PostfixCode postfix = PostfixCode.compile(env, expression, parameters);
+        return new StackProgram(
+                postfix.code, postfix.constants, parameters.clone(), postfix.maxStackDepth, postfix.localCount);
+    }
+
+    /**
+     * Returns a program with the same instructions but its own operand stack and locals, which
+     * can safely be evaluated at the same time as this one.
+     */
+    public StackProgram copy() {
+        return new StackProgram(this.code, this.constants, this.parameters, this.stack.length, this.locals.length);
+    }
+
+    /**
+     * Returns the names of this program's parameters, in slot order.
+     */
+    public String[] getParameters() {
+        return this.parameters.clone();
+    }
+
+    /**
+     * Evaluates this program with a single parameter bound to the given value.
+     *
+     * @throws IllegalStateException  if this program doesn't have exactly one parameter
+     */
+    @Override
+    public double applyAsDouble(double value) {
+        if (this.arguments.length != 1) {
+            throw new IllegalStateException("Program has " + this.arguments.length + " parameters, not 1");
+        }
+        this.arguments[0] = value;
+        return this.evaluate(this.arguments);
+    }
+
+    /**
+     * Evaluates this program, reading the value of the i-th parameter from arguments[i].
+     */
+    public double evaluate(double[] arguments) {
+        int[] code = this.code;
+        double[] stack = this.stack;
+        int top = -1;
+        int pc = 0;
+        while (pc < code.length) {
+            switch (code[pc]) {
+                case CONST:
+                    stack[++top] = this.constants[code[pc + 1]];
+                    pc += 2;
+                    break;
+                case LOAD:
+                    stack[++top] = arguments[code[pc + 1]];
+                    pc += 2;
+                    break;
+                case STORE:
+                    // The value stays on the stack
+                    this.locals[code[pc + 1]] = stack[top];
+                    pc += 2;
+                    break;
+                case LOAD_LOCAL:
+                    stack[++top] = this.locals[code[pc + 1]];
+                    pc += 2;
+                    break;
+                case ADD:
+                    top--;
+                    stack[top] = stack[top] + stack[top + 1];
+                    pc++;
+                    break;
+                case SUBTRACT:
+                    top--;
+                    stack[top] = stack[top] - stack[top + 1];
+                    pc++;
+                    break;
+                case MULTIPLY:
+                    top--;
+                    stack[top] = stack[top] * stack[top + 1];
+                    pc++;
+                    break;
+                case DIVIDE:
+                    top--;
+                    stack[top] = stack[top] / stack[top + 1];
+                    pc++;
+                    break;
+                case POW:
+                    // The exponent is truncated to an int, the same way toDouble does it
+                    top--;
+                    stack[top] = Math.pow(stack[top], (int) stack[top + 1]);
+                    pc++;
+                    break;
+                case NEGATE:
+                    stack[top] = -stack[top];
+                    pc++;
+                    break;
+                case SIN:
+                    stack[top] = Math.sin(stack[top]);
+                    pc++;
+                    break;
+                case COS:
+                    stack[top] = Math.cos(stack[top]);
+                    pc++;
+                    break;
+                default:
+                    throw new AssertionError("Unknown instruction " + code[pc]);
+            }
+        }
+        return stack[0];
+    }
+}
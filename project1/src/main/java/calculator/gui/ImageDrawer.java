@@ -1,5 +1,6 @@
 package calculator.gui;
 
+import datastructures.concrete.DoubleList;
 import datastructures.interfaces.IList;
 import org.jfree.chart.ChartFactory;
 import org.jfree.chart.JFreeChart;
@@ -58,6 +59,20 @@ public class ImageDrawer implements ImageObserver {
         return this.graphics;
     }
 
+    /**
+     * Returns the width of the panel in pixels, or -1 if it isn't known yet.
+     */
+    public int getWidth() {
+        return this.width;
+    }
+
+    /**
+     * Returns the height of the panel in pixels, or -1 if it isn't known yet.
+     */
+    public int getHeight() {
+        return this.height;
+    }
+
     /**
      * Draws a scatter plot that occupies the entire window.
      *
@@ -116,7 +131,61 @@ public class ImageDrawer implements ImageObserver {
         while (xIter.hasNext()) {
             series.add(xIter.next(), yIter.next());
         }
+        this.drawSeries(title, xAxisLabel, yAxisLabel, series, drawRegion);
+    }
+
+    /**
+     * Draws a scatter plot that occupies the entire window.
+     *
+     * This behaves exactly like the IList<Double> version, but reads the coordinates
+     * straight out of primitive lists, so plotting millions of points doesn't require
+     * boxing every one of them.
+     *
+     * @param title       The title of the scatter plot. To hide the title, pass in the empty string.
+     * @param xAxisLabel  The label for the x axis
+     * @param yAxisLabel  The label for the y axis
+     * @param xValues     The x coordinate values to plot
+     * @param yValues     The y coordinate values to plot
+     */
+    public void drawScatterPlot(String title, String xAxisLabel, String yAxisLabel,
+                                DoubleList xValues, DoubleList yValues) {
+        if (this.width == UNKNOWN_DIMENSION || this.height == UNKNOWN_DIMENSION) {
+            throw new IllegalStateException("Unexpected fatal error: Image width or height unknown");
+        }
+        this.drawScatterPlot(
+                title, xAxisLabel, yAxisLabel, xValues, yValues,
+                new Rectangle2D.Double(0, 0, this.width, this.height));
+    }
+
+    /**
+     * Draws a scatter plot that occupies the given portion of the window.
+     *
+     * This behaves exactly like the IList<Double> version, but reads the coordinates
+     * straight out of primitive lists.
+     *
+     * @param title       The title of the scatter plot. To hide the title, pass in the empty string.
+     * @param xAxisLabel  The label for the x axis
+     * @param yAxisLabel  The label for the y axis
+     * @param xValues     The x coordinate values to plot
+     * @param yValues     The y coordinate values to plot
+     * @param drawRegion  The region on the image to draw the chart on
+     */
+    public void drawScatterPlot(String title, String xAxisLabel, String yAxisLabel,
+                                DoubleList xValues, DoubleList yValues,
+                                Rectangle2D drawRegion) {
+        if (xValues.size() != yValues.size()) {
+            throw new IllegalArgumentException("Number of 'x' values and 'y' values are not the same.");
+        }
+
+        XYSeries series = new XYSeries("Series 1");
+        for (int i = 0; i < xValues.size(); i++) {
+            series.add(xValues.get(i), yValues.get(i));
+        }
+        this.drawSeries(title, xAxisLabel, yAxisLabel, series, drawRegion);
+    }
 
+    private void drawSeries(String title, String xAxisLabel, String yAxisLabel,
+                            XYSeries series, Rectangle2D drawRegion) {
         // We add our series to the series collection. A SeriesCollection
         // may contain multiple series in case we want to plot multiple
         // datasets on the same chart. We don't do this, however.
@@ -14,6 +14,7 @@ import java.awt.*;
 import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
 import java.awt.image.BufferedImage;
+import java.io.IOException;
 
 public class MainWindow extends JFrame {
     public static final int DEFAULT_WIDTH = 800;
@@ -149,11 +150,13 @@ public class MainWindow extends JFrame {
 
                     this.tempText += enteredText;
 
-                    // Run command and handle error processing
+                    // Run command and handle error processing. The result is added to the
+                    // text area in chunks as it's printed, so huge results never need to be
+                    // turned into one string.
                     boolean complete = true;
                     String response = "";
                     try {
-                        response = this.calculator.evaluate(this.tempText);
+                        this.calculator.evaluate(this.tempText, new TextAreaOutput(this.area, this.filter));
                     } catch (IncompleteInputError ex) {
                         complete = false;
                     } catch (EvaluationError ex) {
@@ -180,7 +183,7 @@ public class MainWindow extends JFrame {
                     int newOffset = this.area.getDocument().getLength();
                     this.filter.setPromptPosition(newOffset);
                 }
-            } catch (BadLocationException ex) {
+            } catch (BadLocationException | IOException ex) {
                 throw new RuntimeException(ex);
             }
         }
@@ -196,6 +199,37 @@ public class MainWindow extends JFrame {
         }
     }
 
+    /**
+     * Adds whatever is written to it to the end of the text area.
+     */
+    private static class TextAreaOutput implements Appendable {
+        private JTextArea area;
+        private DisallowEditingPastContentFilter filter;
+
+        public TextAreaOutput(JTextArea area, DisallowEditingPastContentFilter filter) {
+            this.area = area;
+            this.filter = filter;
+        }
+
+        @Override
+        public Appendable append(CharSequence csq) {
+            this.filter.allowEditing();
+            this.area.append(String.valueOf(csq));
+            this.filter.disallowEditing();
+            return this;
+        }
+
+        @Override
+        public Appendable append(CharSequence csq, int start, int end) {
+            return this.append(String.valueOf(csq).substring(start, end));
+        }
+
+        @Override
+        public Appendable append(char c) {
+            return this.append(String.valueOf(c));
+        }
+    }
+
     // Code obtained from https://stackoverflow.com/a/10031051/646543
     private static class DisallowEditingPastContentFilter extends DocumentFilter {
         private int promptPosition;
@@ -4,18 +4,18 @@ import calculator.ast.AstNode;
 import calculator.ast.BuiltinManipulators;
 import calculator.ast.ExpressionManipulators;
 import calculator.ast.AstManipulator;
+import calculator.ast.WorkStack;
 import calculator.gui.ImageDrawer;
-import calculator.parser.Parser;
-import datastructures.concrete.DoubleLinkedList;
-import datastructures.concrete.dictionaries.ArrayDictionary;
+import calculator.parser.PrattParser;
+import datastructures.concrete.dictionaries.ChainedHashDictionary;
 import datastructures.interfaces.IDictionary;
 import datastructures.interfaces.IList;
 
-import java.util.Iterator;
+import java.io.IOException;
 
 public class Calculator {
     // Components used by the calculator
-    private Parser parser;
+    private PrattParser parser;
     private Interpreter interpreter;
 
     // State
@@ -23,27 +23,34 @@ public class Calculator {
     private ImageDrawer imageDrawer;
 
     // Internal data
-    private IDictionary<String, AstManipulator> customFunctions;
-    private IDictionary<String, AstManipulator> specialFunctions;
+    private FunctionTable customFunctions;
+    private FunctionTable specialFunctions;
     private IDictionary<String, Integer> precedenceMap;
+    // Reused by every evaluation, so deep inputs only grow it once
+    private WorkStack workStack;
 
     private static final int STRONGEST_PRECEDENCE = 0;
     private static final int WEAKEST_PRECEDENCE = Integer.MAX_VALUE;
+    // Operations printed between their operands rather than as function calls
+    private static final String OPERATOR_NAMES = "-+*/^";
+    // How many characters 'print' collects before writing them to an Appendable
+    private static final int CHUNK_SIZE = 8192;
 
     public Calculator() {
         this(null);
     }
 
     public Calculator(ImageDrawer imageDrawer) {
-        this.parser = new Parser();
         this.interpreter = new Interpreter();
 
-        this.variables = new ArrayDictionary<>();
+        this.variables = new VariableStore();
         this.imageDrawer = imageDrawer;
 
-        this.customFunctions = new ArrayDictionary<>();
-        this.specialFunctions = new ArrayDictionary<>();
-        this.precedenceMap = new ArrayDictionary<>();
+        this.customFunctions = new FunctionTable();
+        this.specialFunctions = new FunctionTable();
+        this.parser = new PrattParser(this.specialFunctions);
+        this.precedenceMap = new ChainedHashDictionary<>();
+        this.workStack = new WorkStack();
 
         // Your functions
         this.customFunctions.put("simplify", ExpressionManipulators::simplify);
@@ -72,11 +79,26 @@ public class Calculator {
         if (input.trim().equals("")) {
             return "";
         }
+        return this.convertToString(this.run(input));
+    }
+
+    /**
+     * Evaluates the given input and writes the result to 'out', the same way
+     * 'evaluate' returns it. Large results are written in chunks as they're printed.
+     *
+     * Nothing is written if the input can't be evaluated.
+     */
+    public void evaluate(String input, Appendable out) throws IOException {
+        if (!input.trim().equals("")) {
+            this.print(this.run(input), out);
+        }
+    }
+
+    private AstNode run(String input) {
         Environment env = this.prepareEnvironment();
+        // The parser already wraps statements and special function arguments in 'simplify'
         AstNode ast = this.parser.parse(input + "\n");
-        AstNode normalizedAst = injectSimplify(env, ast);
-        AstNode output = this.interpreter.evaluate(env, normalizedAst);
-        return this.convertToString(output);
+        return this.interpreter.evaluate(env, ast);
     }
 
     private Environment prepareEnvironment() {
@@ -85,98 +107,155 @@ public class Calculator {
                 this.imageDrawer,
                 this.customFunctions,
                 this.specialFunctions,
-                this.interpreter);
+                this.interpreter,
+                this.workStack);
     }
 
-    private static AstNode injectSimplify(Environment env, AstNode node) {
-        return wrapSimplifyFunc(injectSimplifyHelper(env, node));
+    /**
+     * Prints the given AST, adding parentheses only where the precedence of the
+     * operators requires them.
+     */
+    public String convertToString(AstNode node) {
+        StringBuilder out = new StringBuilder();
+        this.print(node, out);
+        return out.toString();
     }
 
-    private static AstNode injectSimplifyHelper(Environment env, AstNode node) {
-        if (node.isNumber()) {
-            return node;
-        } else if (node.isVariable()) {
-            return node;
-        } else {
-            IList<AstNode> newChildren = new DoubleLinkedList<>();
-            for (AstNode oldChild : node.getChildren()) {
-                newChildren.add(injectSimplifyHelper(env, oldChild));
-            }
-
-            if (env.getSpecialFunctions().containsKey(node.getName())) {
-                for (int i = 0; i < newChildren.size(); i++) {
-                    newChildren.set(i, wrapSimplifyFunc(newChildren.get(i)));
-                }
-
-                return wrapSimplifyFunc(new AstNode(node.getName(), newChildren));
-            } else {
-                return new AstNode(node.getName(), newChildren);
-            }
+    /**
+     * Appends the text of the given AST to 'out', the same way convertToString
+     * prints it.
+     */
+    public void print(AstNode node, StringBuilder out) {
+        try {
+            this.print(node, out, null);
+        } catch (IOException ex) {
+            // Only the sink can throw, and there isn't one
+            throw new AssertionError(ex);
         }
     }
 
-    private static AstNode wrapSimplifyFunc(AstNode inner) {
-        if (inner.isOperation() && inner.getName().equals("simplify")) {
-            return inner;
-        } else {
-            IList<AstNode> children = new DoubleLinkedList<>();
-            children.add(inner);
-            return new AstNode("simplify", children);
+    /**
+     * Writes the text of the given AST to 'out', the same way convertToString
+     * prints it.
+     *
+     * Unless 'out' is a StringBuilder, the text is written in chunks of about
+     * CHUNK_SIZE characters as it's produced, so printing a huge result never
+     * holds all of its text in memory at once.
+     */
+    public void print(AstNode node, Appendable out) throws IOException {
+        if (out instanceof StringBuilder) {
+            this.print(node, (StringBuilder) out);
+            return;
         }
+        StringBuilder buffer = new StringBuilder(CHUNK_SIZE);
+        this.print(node, buffer, out);
+        out.append(buffer);
     }
 
-    private String convertToString(AstNode node) {
-        return this.convertToString(node, WEAKEST_PRECEDENCE);
+    /*
+     * Prints the tree into 'out' in a single pass. If 'sink' isn't null, 'out' is
+     * emptied into it whenever it holds at least CHUNK_SIZE characters.
+     *
+     * Operations that are being printed are kept on the work stack rather than the
+     * call stack, so trees of any depth can be printed. Each one is popped once all of
+     * its children have been printed, at which point its parent is back on top of the
+     * stack to decide whether it needed parentheses.
+     */
+    private void print(AstNode node, StringBuilder out, Appendable sink) throws IOException {
+        if (!node.isOperation()) {
+            appendLeaf(node, out);
+            return;
+        }
+
+        WorkStack work = this.workStack;
+        int frameDepth = work.getFrameDepth();
+        try {
+            appendOpening(node.getName(), out);
+            work.pushFrame(node);
+            while (work.getFrameDepth() > frameDepth) {
+                if (sink != null && out.length() >= CHUNK_SIZE) {
+                    sink.append(out);
+                    out.setLength(0);
+                }
+                AstNode current = work.peekFrame();
+                int next = work.nextChild();
+                String name = current.getName();
+                IList<AstNode> children = current.getChildren();
+                if (next < printedChildCount(name, children.size())) {
+                    if (next > 0) {
+                        appendSeparator(name, out);
+                    }
+                    AstNode child = children.get(next);
+                    if (!child.isOperation()) {
+                        // Leaves bind more strongly than anything, so they never need parentheses
+                        appendLeaf(child, out);
+                    } else {
+                        if (this.getPrecedenceLevel(child.getName()) > this.getChildPrecedenceLevel(name)) {
+                            out.append('(');
+                        }
+                        appendOpening(child.getName(), out);
+                        work.pushFrame(child);
+                    }
+                } else {
+                    work.popFrame();
+                    appendClosing(name, out);
+                    if (work.getFrameDepth() > frameDepth && this.getPrecedenceLevel(name)
+                            > this.getChildPrecedenceLevel(work.peekFrame().getName())) {
+                        out.append(')');
+                    }
+                }
+            }
+        } finally {
+            work.truncate(frameDepth, work.getValueDepth(), work.getResultDepth());
+        }
     }
 
-    private String convertToString(AstNode node, int parentPrecedenceLevel) {
+    private static void appendLeaf(AstNode node, StringBuilder out) {
         if (node.isNumber()) {
-            double val = node.getNumericValue();
-            if (val == (long) val) {
-                return String.format("%d", (long) val);
-            } else {
-                return String.format("%s", val);
-            }
-        } else if (node.isVariable()) {
-            return node.getName();
+            NumberFormatter.append(out, node.getNumericValue());
         } else {
-            String name = node.getName();
-
-            boolean hasPrecedence = this.precedenceMap.containsKey(name);
-            int currPrecedenceLevel = hasPrecedence ? this.precedenceMap.get(name) : STRONGEST_PRECEDENCE;
-            int childPrecedenceLevel = hasPrecedence ? currPrecedenceLevel : WEAKEST_PRECEDENCE;
-
-            IList<String> children = new DoubleLinkedList<>();
-            for (AstNode child : node.getChildren()) {
-                children.add(this.convertToString(child, childPrecedenceLevel));
-            }
+            out.append(node.getName());
+        }
+    }
 
-            String out;
-            if ("-+*/^".contains(name)) {
-                out = this.join(" " + name + " ", children);
-            } else if ("negate".equals(name)) {
-                out = "-" + children.get(0);
-            } else {
-                out = name + "(" + this.join(", ", children) + ")";
-            }
+    // 'negate' only prints its first child
+    private static int printedChildCount(String name, int childCount) {
+        return "negate".equals(name) ? Math.min(1, childCount) : childCount;
+    }
 
-            if (currPrecedenceLevel > parentPrecedenceLevel) {
-                out = "(" + out + ")";
-            }
+    // Prints whatever comes before an operation's first child
+    private static void appendOpening(String name, StringBuilder out) {
+        if ("negate".equals(name)) {
+            out.append('-');
+        } else if (!OPERATOR_NAMES.contains(name)) {
+            out.append(name).append('(');
+        }
+    }
 
-            return out;
+    // Prints whatever goes between two of an operation's children
+    private static void appendSeparator(String name, StringBuilder out) {
+        if (OPERATOR_NAMES.contains(name)) {
+            out.append(' ').append(name).append(' ');
+        } else {
+            out.append(", ");
         }
     }
 
-    private String join(String connector, IList<String> items) {
-        String out = "";
-        if (!items.isEmpty()) {
-            Iterator<String> iter = items.iterator();
-            out = iter.next();
-            while (iter.hasNext()) {
-                out += connector + iter.next();
-            }
+    // Prints whatever comes after an operation's last child
+    private static void appendClosing(String name, StringBuilder out) {
+        if (!OPERATOR_NAMES.contains(name) && !"negate".equals(name)) {
+            out.append(')');
         }
-        return out;
+    }
+
+    private int getPrecedenceLevel(String name) {
+        Integer level = this.precedenceMap.getOrDefault(name, null);
+        return level != null ? level : STRONGEST_PRECEDENCE;
+    }
+
+    // The weakest precedence a child of the operation can have without needing parentheses
+    private int getChildPrecedenceLevel(String name) {
+        Integer level = this.precedenceMap.getOrDefault(name, null);
+        return level != null ? level : WEAKEST_PRECEDENCE;
     }
 }
@@ -2,6 +2,7 @@ package calculator.interpreter;
 
 import calculator.ast.AstNode;
 import calculator.ast.AstManipulator;
+import calculator.ast.WorkStack;
 import calculator.gui.ImageDrawer;
 import datastructures.interfaces.IDictionary;
 
@@ -23,20 +24,36 @@ import datastructures.interfaces.IDictionary;
 public class Environment {
     private IDictionary<String, AstNode> variables;
     private ImageDrawer imageDrawer;
-    private IDictionary<String, AstManipulator> customFunctions;
-    private IDictionary<String, AstManipulator> specialFunctions;
+    private FunctionTable customFunctions;
+    private FunctionTable specialFunctions;
     private Interpreter interpreter;
+    private WorkStack workStack;
 
     public Environment(IDictionary<String, AstNode> variables,
                        ImageDrawer imageDrawer,
-                       IDictionary<String, AstManipulator> customFunctions,
-                       IDictionary<String, AstManipulator> specialFunctions,
+                       FunctionTable customFunctions,
+                       FunctionTable specialFunctions,
                        Interpreter interpreter) {
+        this(variables, imageDrawer, customFunctions, specialFunctions, interpreter, null);
+    }
+
+    /**
+     * Creates an environment whose traversals use the given work stack, so one stack
+     * can be reused across many environments. If 'workStack' is null, a new one is
+     * created the first time it's needed.
+     */
+    public Environment(IDictionary<String, AstNode> variables,
+                       ImageDrawer imageDrawer,
+                       FunctionTable customFunctions,
+                       FunctionTable specialFunctions,
+                       Interpreter interpreter,
+                       WorkStack workStack) {
         this.variables = variables;
         this.imageDrawer = imageDrawer;
         this.customFunctions = customFunctions;
         this.specialFunctions = specialFunctions;
         this.interpreter = interpreter;
+        this.workStack = workStack;
     }
 
     /**
@@ -46,6 +63,25 @@ public class Environment {
         return this.variables;
     }
 
+    /**
+     * Returns the variables if they're kept in a VariableStore, or null otherwise.
+     *
+     * You should ignore this method.
+     */
+    public VariableStore getVariableStore() {
+        if (this.variables instanceof VariableStore) {
+            return (VariableStore) this.variables;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the value of the given variable, or null if it isn't defined.
+     */
+    public AstNode lookupVariable(String name) {
+        return this.variables.getOrDefault(name, null);
+    }
+
     /**
      * Returns a class that contains a variety of useful methods for
      * drawing and plotting data.
@@ -80,6 +116,26 @@ public class Environment {
         return this.specialFunctions;
     }
 
+    /**
+     * Returns the custom function that handles the given operation node,
+     * or null if there is none.
+     *
+     * You should ignore this method.
+     */
+    public AstManipulator lookupCustomFunction(AstNode node) {
+        return this.customFunctions.lookup(node);
+    }
+
+    /**
+     * Returns the special function that handles the given operation node,
+     * or null if there is none.
+     *
+     * You should ignore this method.
+     */
+    public AstManipulator lookupSpecialFunction(AstNode node) {
+        return this.specialFunctions.lookup(node);
+    }
+
     /**
      * Returns the interpreter that is currently executing the AST.
      *
@@ -89,4 +145,17 @@ public class Environment {
     public Interpreter getInterpreter() {
         return this.interpreter;
     }
+
+    /**
+     * Returns the stack that the interpreter, toDouble and simplify use in place of
+     * recursion when walking ASTs in this environment.
+     *
+     * You should ignore this method.
+     */
+    public WorkStack getWorkStack() {
+        if (this.workStack == null) {
+            this.workStack = new WorkStack();
+        }
+        return this.workStack;
+    }
 }
@@ -0,0 +1,74 @@
+package calculator.interpreter;
+
+import calculator.ast.AstManipulator;
+import calculator.ast.AstNode;
+import calculator.ast.Opcode;
+import datastructures.concrete.dictionaries.ChainedHashDictionary;
+import datastructures.interfaces.IDictionary;
+
+/**
+ * A dictionary of functions that can also be looked up directly by an
+ * operation node's opcode.
+ *
+ * Functions are still registered and retrieved by name, but every function
+ * whose name is a builtin opcode is mirrored into an array indexed by that
+ * opcode. The interpreter can then find the function for an operation node
+ * with a single array access instead of searching by name.
+ */
+public class FunctionTable implements IDictionary<String, AstManipulator> {
+    private static final int NUM_OPCODES = Opcode.values().length;
+
+    private IDictionary<String, AstManipulator> byName;
+    private AstManipulator[] byOpcode;
+
+    public FunctionTable() {
+        this.byName = new ChainedHashDictionary<>();
+        this.byOpcode = new AstManipulator[NUM_OPCODES];
+    }
+
+    /**
+     * Returns the function that should handle the given operation node, or
+     * null if no such function was registered.
+     */
+    public AstManipulator lookup(AstNode node) {
+        Opcode opcode = node.getOpcode();
+        if (opcode != Opcode.UNKNOWN) {
+            return this.byOpcode[opcode.ordinal()];
+        }
+        return this.byName.getOrDefault(node.getName(), null);
+    }
+
+    @Override
+    public AstManipulator get(String name) {
+        return this.byName.get(name);
+    }
+
+    @Override
+    public void put(String name, AstManipulator function) {
+        this.byName.put(name, function);
+        Opcode opcode = Opcode.fromName(name);
+        if (opcode != Opcode.UNKNOWN) {
+            this.byOpcode[opcode.ordinal()] = function;
+        }
+    }
+
+    @Override
+    public AstManipulator remove(String name) {
+        AstManipulator function = this.byName.remove(name);
+        Opcode opcode = Opcode.fromName(name);
+        if (opcode != Opcode.UNKNOWN) {
+            this.byOpcode[opcode.ordinal()] = null;
+        }
+        return function;
+    }
+
+    @Override
+    public boolean containsKey(String name) {
+        return this.byName.containsKey(name);
+    }
+
+    @Override
+    public int size() {
+        return this.byName.size();
+    }
+}
@@ -1,35 +1,97 @@
 package calculator.interpreter;
 
+import calculator.ast.AstInterner;
+import calculator.ast.AstManipulator;
 import calculator.ast.AstNode;
-import datastructures.concrete.DoubleLinkedList;
+import calculator.ast.WorkStack;
+import datastructures.concrete.ImmutableList;
 import datastructures.interfaces.IList;
 
 public class Interpreter {
+    /**
+     * Evaluates the given AST, children before parents.
+     *
+     * The tree is walked with the environment's work stack rather than recursion,
+     * so expressions of any depth can be evaluated.
+     */
     public AstNode evaluate(Environment env, AstNode node) {
         if (node.isNumber()) {
             return node;
         } else if (node.isVariable()) {
             return node;
-        } else if (node.isOperation()) {
-            String nodeName = node.getName();
-            if (env.getSpecialFunctions().containsKey(nodeName)) {
-                // Special functions take complete control
-                return env.getSpecialFunctions().get(nodeName).manipulate(env, node);
-            } else {
+        } else if (!node.isOperation()) {
+            throw new AssertionError();
+        }
+
+        WorkStack work = env.getWorkStack();
+        int frameDepth = work.getFrameDepth();
+        int valueDepth = work.getValueDepth();
+        int resultDepth = work.getResultDepth();
+        try {
+            work.pushFrame(node);
+            while (work.getFrameDepth() > frameDepth) {
+                AstNode current = work.peekFrame();
+                int next = work.nextChild();
+                if (next == 0) {
+                    AstManipulator special = env.lookupSpecialFunction(current);
+                    if (special != null) {
+                        // Special functions take complete control
+                        work.popFrame();
+                        work.pushResult(special.manipulate(env, current));
+                        continue;
+                    }
+                }
+
                 // Regular, custom functions are executed normally
-                IList<AstNode> children = new DoubleLinkedList<>();
-                for (AstNode oldChild : node.getChildren()) {
-                    children.add(evaluate(env, oldChild));
+                IList<AstNode> children = current.getChildren();
+                if (next < children.size()) {
+                    AstNode child = children.get(next);
+                    if (child.isOperation()) {
+                        work.pushFrame(child);
+                    } else {
+                        work.pushResult(child);
+                    }
+                } else {
+                    work.popFrame();
+                    work.pushResult(this.apply(env, current, work));
                 }
+            }
+            return work.popResult();
+        } finally {
+            work.truncate(frameDepth, valueDepth, resultDepth);
+        }
+    }
 
-                AstNode output = new AstNode(node.getName(), children);
-                if (env.getCustomFunctions().containsKey(nodeName)) {
-                    output = env.getCustomFunctions().get(nodeName).manipulate(env, output);
+    /*
+     * Pops the evaluated children of 'node' off the work stack and runs the custom
+     * function for the node they make up, if there is one.
+     */
+    private AstNode apply(Environment env, AstNode node, WorkStack work) {
+        IList<AstNode> oldChildren = node.getChildren();
+        AstNode[] children = null;
+        for (int i = oldChildren.size() - 1; i >= 0; i--) {
+            AstNode child = work.popResult();
+            if (child != oldChildren.get(i) && children == null) {
+                // Only copy the children once one of them has changed
+                children = new AstNode[oldChildren.size()];
+                for (int j = i + 1; j < children.length; j++) {
+                    children[j] = oldChildren.get(j);
                 }
-                return output;
             }
-        } else {
-            throw new AssertionError();
+            if (children != null) {
+                children[i] = child;
+            }
+        }
+
+        AstNode output = node;
+        if (children != null) {
+            // Interning shares the result with any equal tree built before it
+            output = AstInterner.shared().operation(node.getName(), ImmutableList.of(children));
+        }
+        AstManipulator custom = env.lookupCustomFunction(output);
+        if (custom != null) {
+            output = custom.manipulate(env, output);
         }
+        return output;
     }
 }
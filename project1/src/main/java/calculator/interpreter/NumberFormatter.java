@@ -0,0 +1,86 @@
+package calculator.interpreter;
+
+/**
+ * Formats numbers the way the calculator prints them: whole numbers without a
+ * decimal point, and everything else the way Double.toString would.
+ *
+ * Whole numbers are appended as longs, and most other results of everyday
+ * arithmetic (like 2.5 or 0.125) have a short exact decimal form that can be
+ * found with a few multiplications. Only the remaining numbers, which need
+ * scientific notation or many digits, fall back on the JDK's formatting. None
+ * of this goes through String.format, and nothing is allocated when writing
+ * into a StringBuilder with enough room.
+ */
+public class NumberFormatter {
+    private static final long[] POWERS_OF_TEN = {
+        1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L, 10000000L, 100000000L, 1000000000L,
+        10000000000L, 100000000000L, 1000000000000L, 10000000000000L, 100000000000000L,
+        1000000000000000L, 10000000000000000L, 100000000000000000L,
+    };
+
+    // Decimals with fewer significant digits than this always parse back to the same double
+    private static final double MAX_SHORT_DIGITS = 1e15;
+
+    // Double.toString only writes numbers in this range without an exponent
+    private static final double MIN_PLAIN = 1e-3;
+    private static final double MAX_PLAIN = 1e7;
+
+    /**
+     * Returns the given number as text.
+     */
+    public static String format(double value) {
+        StringBuilder out = new StringBuilder(24);
+        append(out, value);
+        return out.toString();
+    }
+
+    /**
+     * Appends the given number to 'out'.
+     */
+    public static void append(StringBuilder out, double value) {
+        if (value == (long) value) {
+            out.append((long) value);
+        } else if (!appendShortDecimal(out, value)) {
+            out.append(value);
+        }
+    }
+
+    /*
+     * Appends the number if it can be written exactly with fewer than 15 significant
+     * digits and without an exponent, and returns whether it was.
+     *
+     * Tries 1, 2, 3, ... digits after the decimal point, and stops at the first count
+     * whose closest decimal parses back to the number. Dividing two exactly representable
+     * numbers rounds correctly, just like parsing, so the check is exact. Since the digits
+     * are as few as possible, this is the same text Double.toString gives.
+     */
+    private static boolean appendShortDecimal(StringBuilder out, double value) {
+        double magnitude = Math.abs(value);
+        if (!(magnitude >= MIN_PLAIN && magnitude < MAX_PLAIN)) {
+            // Also rules out NaN
+            return false;
+        }
+        for (int places = 1; places < POWERS_OF_TEN.length; places++) {
+            double power = POWERS_OF_TEN[places];
+            double scaled = magnitude * power;
+            if (scaled >= MAX_SHORT_DIGITS) {
+                return false;
+            }
+            long digits = (long) Math.rint(scaled);
+            if (digits / power == magnitude) {
+                if (value < 0) {
+                    out.append('-');
+                }
+                out.append(digits / POWERS_OF_TEN[places]).append('.');
+                long fraction = digits % POWERS_OF_TEN[places];
+                // Pad the fraction with zeros up to the number of places
+                for (int i = places - 1; i > 0 && fraction < POWERS_OF_TEN[i]; i--) {
+                    out.append('0');
+                }
+                out.append(fraction);
+                return true;
+            }
+        }
+        return false;
+    }
+}
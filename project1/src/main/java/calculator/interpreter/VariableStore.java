@@ -0,0 +1,400 @@
+package calculator.interpreter;
+
+import calculator.ast.AstNode;
+import calculator.ast.VariableSet;
+import calculator.errors.EvaluationError;
+import datastructures.concrete.DynamicArrayList;
+import datastructures.concrete.dictionaries.ChainedHashDictionary;
+import datastructures.concrete.dictionaries.LruCache;
+import datastructures.interfaces.IDictionary;
+import datastructures.interfaces.IList;
+import misc.exceptions.NoSuchKeyException;
+
+import java.util.function.ToDoubleFunction;
+import java.util.function.UnaryOperator;
+
+/**
+ * A dictionary of variable definitions that remembers what each definition evaluates to.
+ *
+ * Every variable's definition is scanned for the names it refers to, which gives a
+ * dependency graph between variables (including names that aren't defined yet). Each
+ * variable can then cache its simplified form and its numeric value. Redefining or
+ * removing a variable clears its own cached values and those of every variable that
+ * depends on it, directly or indirectly, much like a spreadsheet; everything else
+ * keeps its cached values. Cleared values are only recomputed when they're next asked
+ * for.
+ *
+ * The cached values are computed by the caller-supplied functions passed to
+ * 'getSimplified' and 'getNumericValue', which are expected to look up any variables
+ * they encounter through this store again. While a variable's value is being computed,
+ * asking for that same variable means its definition refers to itself, and is reported
+ * as an EvaluationError.
+ *
+ * The store can also cache the simplified form and numeric value of whole expressions,
+ * in an LruCache keyed by the expressions' structure. Each variable has a version that
+ * changes whenever its cached values are cleared; a cached expression remembers the
+ * versions of the variables it refers to, and is recomputed if any of them changed.
+ *
+ * This class is not thread-safe.
+ */
+public class VariableStore implements IDictionary<String, AstNode> {
+    private static final int DEFAULT_EXPRESSION_CACHE_SIZE = 1024;
+
+    private IDictionary<String, Entry> entries;
+    private LruCache<AstNode, CachedExpression> expressions;
+    private int size;
+    private int visitCount;
+    private long versionCount;
+
+    public VariableStore() {
+        this(DEFAULT_EXPRESSION_CACHE_SIZE);
+    }
+
+    /**
+     * Creates an empty store that caches the values of up to 'expressionCacheSize'
+     * expressions.
+     */
+    public VariableStore(int expressionCacheSize) {
+        this.entries = new ChainedHashDictionary<>();
+        this.expressions = new LruCache<>(expressionCacheSize);
+        this.size = 0;
+        this.visitCount = 0;
+        this.versionCount = 0;
+    }
+
+    @Override
+    public AstNode get(String key) {
+        AstNode definition = this.getOrDefault(key, null);
+        if (definition == null) {
+            throw new NoSuchKeyException();
+        }
+        return definition;
+    }
+
+    @Override
+    public AstNode getOrDefault(String key, AstNode defaultValue) {
+        Entry entry = this.entries.getOrDefault(key, null);
+        return entry == null || entry.definition == null ? defaultValue : entry.definition;
+    }
+
+    @Override
+    public void put(String key, AstNode value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Variables can't be defined as null");
+        }
+        this.define(key, value);
+    }
+
+    @Override
+    public AstNode remove(String key) {
+        AstNode old = this.get(key);
+        this.define(key, null);
+        return old;
+    }
+
+    @Override
+    public boolean containsKey(String key) {
+        return this.getOrDefault(key, null) != null;
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Returns the simplified form of the given variable's definition, computing it with
+     * 'simplifier' if it isn't already cached. Returns null if the variable isn't defined.
+     *
+     * @throws EvaluationError  if the variable's definition refers back to itself
+     */
+    public AstNode getSimplified(String name, UnaryOperator<AstNode> simplifier) {
+        Entry entry = this.entries.getOrDefault(name, null);
+        if (entry == null || entry.definition == null) {
+            return null;
+        }
+        if (entry.simplified == null) {
+            entry.enter();
+            try {
+                entry.simplified = simplifier.apply(entry.definition);
+            } finally {
+                entry.inProgress = false;
+            }
+        }
+        return entry.simplified;
+    }
+
+    /**
+     * Returns the numeric value of the given variable, computing it with 'evaluator' if
+     * it isn't already cached.
+     *
+     * @throws EvaluationError  if the variable isn't defined
+     * @throws EvaluationError  if the variable's definition refers back to itself
+     */
+    public double getNumericValue(String name, ToDoubleFunction<AstNode> evaluator) {
+        Entry entry = this.entries.getOrDefault(name, null);
+        if (entry == null || entry.definition == null) {
+            throw new EvaluationError("Undefined variable: " + name);
+        }
+        if (!entry.hasNumericValue) {
+            entry.enter();
+            try {
+                entry.numericValue = evaluator.applyAsDouble(entry.definition);
+                entry.hasNumericValue = true;
+            } finally {
+                entry.inProgress = false;
+            }
+        }
+        return entry.numericValue;
+    }
+
+    /**
+     * Returns 'true' if the given expression refers to the given variable, either directly
+     * or through the definitions of the variables it refers to. Defining the variable as
+     * the expression would then make its definition refer back to itself.
+     */
+    public boolean dependsOn(AstNode expression, String name) {
+        VariableSet variables = expression.getFreeVariables();
+        if (variables.contains(name)) {
+            return true;
+        }
+        Entry target = this.entries.getOrDefault(name, null);
+        if (target == null || target.dependents.isEmpty()) {
+            // No definition refers to it
+            return false;
+        }
+
+        this.visitCount++;
+        IList<Entry> pending = new DynamicArrayList<>();
+        for (String reference : variables.getNames()) {
+            Entry entry = this.entries.getOrDefault(reference, null);
+            if (entry != null) {
+                entry.visited = this.visitCount;
+                pending.add(entry);
+            }
+        }
+        while (!pending.isEmpty()) {
+            Entry entry = pending.remove();
+            if (entry == target) {
+                return true;
+            }
+            for (Entry reference : entry.references) {
+                if (reference.visited != this.visitCount) {
+                    reference.visited = this.visitCount;
+                    pending.add(reference);
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the simplified form of the given expression, computing it with 'simplifier'
+     * if it isn't already cached or if any variable it refers to has changed since.
+     */
+    public AstNode getSimplified(AstNode expression, UnaryOperator<AstNode> simplifier) {
+        CachedExpression cached = this.lookUpExpression(expression);
+        if (cached.simplified == null) {
+            cached.simplified = simplifier.apply(expression);
+        }
+        return cached.simplified;
+    }
+
+    /**
+     * Returns the numeric value of the given expression, computing it with 'evaluator'
+     * if it isn't already cached or if any variable it refers to has changed since.
+     */
+    public double getNumericValue(AstNode expression, ToDoubleFunction<AstNode> evaluator) {
+        CachedExpression cached = this.lookUpExpression(expression);
+        if (!cached.hasNumericValue) {
+            cached.numericValue = evaluator.applyAsDouble(expression);
+            cached.hasNumericValue = true;
+        }
+        return cached.numericValue;
+    }
+
+    /**
+     * Returns the cache of expression values, so its hit, miss and eviction counts
+     * can be inspected.
+     */
+    public LruCache<AstNode, CachedExpression> getExpressionCache() {
+        return this.expressions;
+    }
+
+    /**
+     * Returns the cache entry for the given expression, creating it or clearing its
+     * values if they're missing or out of date.
+     */
+    private CachedExpression lookUpExpression(AstNode expression) {
+        CachedExpression cached = this.expressions.getOrDefault(expression, null);
+        if (cached == null) {
+            IList<Entry> references = new DynamicArrayList<>();
+            this.collectReferences(expression, references);
+            cached = new CachedExpression(references);
+            this.expressions.put(expression, cached);
+        } else if (!cached.isUpToDate()) {
+            cached.refresh();
+        }
+        return cached;
+    }
+
+    /**
+     * Sets (or, if 'definition' is null, removes) the definition of the given variable,
+     * updates the dependency graph, and clears the cached values of every variable that
+     * depends on it.
+     */
+    private void define(String name, AstNode definition) {
+        Entry entry = this.getOrCreateEntry(name);
+        if (entry.inProgress) {
+            throw new EvaluationError("Can't redefine " + name + " while evaluating it");
+        }
+        if (entry.definition == null && definition != null) {
+            this.size++;
+        } else if (entry.definition != null && definition == null) {
+            this.size--;
+        }
+
+        for (Entry reference : entry.references) {
+            reference.dependents.delete(reference.dependents.indexOf(entry));
+        }
+        entry.definition = definition;
+        entry.references = new DynamicArrayList<>();
+        if (definition != null) {
+            this.collectReferences(definition, entry.references);
+            for (Entry reference : entry.references) {
+                reference.dependents.add(entry);
+            }
+        }
+
+        this.invalidate(entry);
+    }
+
+    /**
+     * Adds the entry of every variable named in 'node' to 'references', once each.
+     *
+     * Every node already knows the variables in its subtree, so this doesn't need to
+     * walk the tree.
+     */
+    private void collectReferences(AstNode node, IList<Entry> references) {
+        for (String name : node.getFreeVariables().getNames()) {
+            references.add(this.getOrCreateEntry(name));
+        }
+    }
+
+    /**
+     * Clears the cached values of 'start' and of everything that depends on it.
+     */
+    private void invalidate(Entry start) {
+        this.visitCount++;
+        IList<Entry> pending = new DynamicArrayList<>();
+        start.visited = this.visitCount;
+        pending.add(start);
+        while (!pending.isEmpty()) {
+            Entry entry = pending.remove();
+            entry.simplified = null;
+            entry.hasNumericValue = false;
+            this.versionCount++;
+            entry.version = this.versionCount;
+            for (Entry dependent : entry.dependents) {
+                if (dependent.visited != this.visitCount) {
+                    dependent.visited = this.visitCount;
+                    pending.add(dependent);
+                }
+            }
+        }
+    }
+
+    private Entry getOrCreateEntry(String name) {
+        Entry entry = this.entries.getOrDefault(name, null);
+        if (entry == null) {
+            entry = new Entry(name);
+            this.entries.put(name, entry);
+        }
+        return entry;
+    }
+
+    /**
+     * A node in the dependency graph. Names that are referred to but not defined also
+     * get an entry (with a null definition), so that defining them later can find the
+     * variables that depend on them.
+     */
+    private static class Entry {
+        public final String name;
+        public AstNode definition;
+        public IList<Entry> references;
+        public IList<Entry> dependents;
+
+        public AstNode simplified;
+        public boolean hasNumericValue;
+        public double numericValue;
+
+        public boolean inProgress;
+        public int visited;
+
+        // Changes whenever the cached values above are cleared
+        public long version;
+
+        public Entry(String name) {
+            this.name = name;
+            this.definition = null;
+            this.references = new DynamicArrayList<>();
+            this.dependents = new DynamicArrayList<>();
+            this.simplified = null;
+            this.hasNumericValue = false;
+            this.inProgress = false;
+            this.visited = 0;
+            this.version = 0;
+        }
+
+        /**
+         * Marks this entry as being computed.
+         *
+         * @throws EvaluationError  if it's already being computed
+         */
+        public void enter() {
+            if (this.inProgress) {
+                throw new EvaluationError("Cyclic definition: " + this.name);
+            }
+            this.inProgress = true;
+        }
+    }
+
+    /**
+     * The cached values of an expression, along with the versions of the variables it
+     * referred to when they were computed.
+     */
+    public static class CachedExpression {
+        private final Entry[] references;
+        private final long[] versions;
+
+        private AstNode simplified;
+        private boolean hasNumericValue;
+        private double numericValue;
+
+        private CachedExpression(IList<Entry> references) {
+            this.references = new Entry[references.size()];
+            this.versions = new long[references.size()];
+            for (int i = 0; i < this.references.length; i++) {
+                this.references[i] = references.get(i);
+            }
+            this.refresh();
+        }
+
+        private boolean isUpToDate() {
+            for (int i = 0; i < this.references.length; i++) {
+                if (this.references[i].version != this.versions[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void refresh() {
+            for (int i = 0; i < this.references.length; i++) {
+                this.versions[i] = this.references[i].version;
+            }
+            this.simplified = null;
+            this.hasNumericValue = false;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package calculator.parser;
+
+import calculator.ast.AstNode;
+import calculator.ast.Opcode;
+import calculator.interpreter.FunctionTable;
+import datastructures.concrete.ImmutableList;
+import datastructures.interfaces.IList;
+
+/**
+ * Builds the nodes of a parsed program, shared by every parser so that they all
+ * give back exactly the same trees.
+ *
+ * Given a table of special functions, it also prepares the tree for the
+ * interpreter, as described on Parser(FunctionTable). Whether a literal
+ * expression may be folded depends on whether 'simplify' would look at it, so
+ * the parsers track that as they go:
+ *
+ * - statements and the arguments of special functions are wrapped in 'simplify'
+ * - 'simplify' looks at both operands of +, -, * and /, but only the first child
+ *   of every other operation, including '^'
+ *
+ * Without a table of special functions, the tree is returned exactly as written.
+ */
+class AstBuilder {
+    private final FunctionTable specialFunctions;
+
+    public AstBuilder(FunctionTable specialFunctions) {
+        this.specialFunctions = specialFunctions;
+    }
+
+    /**
+     * Returns 'true' if calls to the given function should be wrapped in 'simplify',
+     * along with each of their arguments.
+     */
+    public boolean isSpecial(String name) {
+        return this.specialFunctions != null && this.specialFunctions.containsKey(name);
+    }
+
+    /**
+     * Returns whether the given argument of a call would be simplified, if the call
+     * itself would be (or not).
+     */
+    public boolean isArgumentSimplified(String name, int index, boolean simplified) {
+        // 'simplify' only looks at the first argument, but always simplifies that
+        return this.isSpecial(name) || (index == 0 && (simplified || "simplify".equals(name)));
+    }
+
+    /**
+     * Returns the root of a program made of the given statements.
+     */
+    public AstNode program(IList<AstNode> statements) {
+        AstNode block = this.call("block", statements);
+        // The whole program is simplified, even if 'block' isn't special
+        return this.specialFunctions != null ? wrapSimplifyFunc(block) : block;
+    }
+
+    /**
+     * Returns a call to the given function, with its arguments wrapped if it's special.
+     */
+    public AstNode call(String name, IList<AstNode> arguments) {
+        if (!this.isSpecial(name)) {
+            return new AstNode(name, arguments);
+        }
+        AstNode[] wrapped = new AstNode[arguments.size()];
+        for (int i = 0; i < wrapped.length; i++) {
+            wrapped[i] = wrapSimplifyFunc(arguments.get(i));
+        }
+        return wrapSimplifyFunc(new AstNode(name, ImmutableList.of(wrapped)));
+    }
+
+    /**
+     * Returns the node for 'left op right', folded into a number if both operands
+     * are numbers and 'simplify' would fold it.
+     */
+    public AstNode arithmetic(String op, AstNode left, AstNode right, boolean simplified) {
+        if (this.specialFunctions != null && simplified && left.isNumber() && right.isNumber()) {
+            double leftValue = left.getNumericValue();
+            double rightValue = right.getNumericValue();
+            if ("+".equals(op)) {
+                return new AstNode(leftValue + rightValue);
+            } else if ("-".equals(op)) {
+                return new AstNode(leftValue - rightValue);
+            } else if ("*".equals(op)) {
+                return new AstNode(leftValue * rightValue);
+            }
+        }
+        return new AstNode(op, ImmutableList.of(left, right));
+    }
+
+    private static AstNode wrapSimplifyFunc(AstNode inner) {
+        if (inner.isOperation() && inner.getOpcode() == Opcode.SIMPLIFY) {
+            return inner;
+        } else {
+            return new AstNode("simplify", ImmutableList.of(inner));
+        }
+    }
+}
@@ -1,19 +1,70 @@
 package calculator.parser;
 
+import calculator.ast.AstInterner;
 import calculator.ast.AstNode;
 import calculator.errors.IncompleteInputError;
 import calculator.errors.ParseError;
+import calculator.interpreter.FunctionTable;
 import calculator.parser.grammar.CalculatorGrammarLexer;
 import calculator.parser.grammar.CalculatorGrammarParser;
-import calculator.parser.grammar.CalculatorGrammarParserBaseVisitor;
-import datastructures.concrete.DoubleLinkedList;
+import calculator.parser.grammar.CalculatorGrammarParserBaseListener;
+import datastructures.concrete.DynamicArrayList;
+import datastructures.concrete.ImmutableList;
 import datastructures.interfaces.IList;
 import org.antlr.v4.runtime.*;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
 
 import java.io.IOException;
 import java.io.StringReader;
 
+/**
+ * Parses input with the ANTLR grammar in CalculatorGrammarParser.g4.
+ *
+ * One lexer, token stream and parser are created the first time this parses
+ * anything, and are pointed at each new input after that, so a Parser must only
+ * be used by one thread at a time. No parse tree is built: an AstListener builds
+ * the AstNodes as the parser leaves each rule.
+ *
+ * Each input is first parsed with SLL prediction, which is much cheaper and
+ * succeeds on almost every input. Only if that fails is the input parsed again
+ * with full LL prediction, which also reports the syntax error, if there is one.
+ */
 public class Parser {
+    private FunctionTable specialFunctions;
+
+    // Reused for every input, and created the first time they're needed
+    private CalculatorGrammarLexer lexer;
+    private CalculatorGrammarParser parser;
+    private AstListener listener;
+
+    private final ThrowingErrorListener errorListener = new ThrowingErrorListener();
+    private final ANTLRErrorStrategy bailErrorStrategy = new BailErrorStrategy();
+    private final ANTLRErrorStrategy defaultErrorStrategy = new DefaultErrorStrategy();
+
+    /**
+     * Creates a parser that returns the tree exactly as it's written.
+     */
+    public Parser() {
+        this(null);
+    }
+
+    /**
+     * Creates a parser that returns trees already prepared for the interpreter,
+     * the way the calculator used to prepare them after parsing:
+     *
+     * - every argument of a special function, and the call itself, is wrapped in
+     *   'simplify' (once)
+     * - sums, differences and products of two numbers are folded into a single
+     *   number, wherever 'simplify' would fold them anyway
+     *
+     * Special functions are looked up in the given table whenever a call is parsed,
+     * so functions added to it later are handled too.
+     */
+    public Parser(FunctionTable specialFunctions) {
+        this.specialFunctions = specialFunctions;
+    }
+
     public AstNode parse(String rawInput) {
         CharStream input;
         try {
@@ -24,18 +75,45 @@ public class Parser {
                     ex);
         }
 
-        CalculatorGrammarLexer lexer = new CalculatorGrammarLexer(input);
-        lexer.removeErrorListeners();
-        lexer.addErrorListener(new ThrowingErrorListener());
-
-        CommonTokenStream tokenStream = this.ensureIsComplete(new CommonTokenStream(lexer));
+        if (this.lexer == null) {
+            this.lexer = new CalculatorGrammarLexer(input);
+            this.lexer.removeErrorListeners();
+            this.lexer.addErrorListener(this.errorListener);
+        } else {
+            this.lexer.setInputStream(input);
+        }
+        // Token streams are cheap, and can't be pointed at a new input once they've
+        // read to the end of one
+        CommonTokenStream tokenStream = this.ensureIsComplete(new CommonTokenStream(this.lexer));
+
+        if (this.parser == null) {
+            this.parser = new CalculatorGrammarParser(tokenStream);
+            this.parser.setBuildParseTree(false);
+            this.listener = new AstListener(this.parser, this.specialFunctions);
+            this.parser.addParseListener(this.listener);
+        } else {
+            this.parser.setInputStream(tokenStream);
+        }
 
-        CalculatorGrammarParser parser = new CalculatorGrammarParser(tokenStream);
-        parser.removeErrorListeners();
-        parser.addErrorListener(new ThrowingErrorListener());
+        try {
+            // Without any error listeners, the first syntax error just stops the parse
+            this.parser.removeErrorListeners();
+            this.parseProgram(PredictionMode.SLL, this.bailErrorStrategy);
+        } catch (ParseCancellationException ex) {
+            // Either the input has a syntax error, or SLL wasn't enough to parse it
+            this.parser.addErrorListener(this.errorListener);
+            this.parseProgram(PredictionMode.LL, this.defaultErrorStrategy);
+        }
+        // Parsing the same text twice gives back the very same tree
+        return AstInterner.shared().intern(this.listener.getProgram());
+    }
 
-        CalculatorGrammarParser.ProgramContext entryPoint = parser.program();
-        return new AstConverter().visitProgram(entryPoint);
+    private void parseProgram(PredictionMode mode, ANTLRErrorStrategy errorStrategy) {
+        this.parser.getInterpreter().setPredictionMode(mode);
+        this.parser.setErrorHandler(errorStrategy);
+        this.parser.reset();
+        this.listener.reset();
+        this.parser.program();
     }
 
     public CommonTokenStream ensureIsComplete(CommonTokenStream stream) {
@@ -53,7 +131,7 @@ public class Parser {
             } else if (type == CalculatorGrammarLexer.RPAREN) {
                 balanceCount -= 1;
             } else if (type == CalculatorGrammarLexer.LINE_BREAK) {
-                this.verifyBalanceCount(token.getLine(), balanceCount);
+                verifyBalanceCount(token.getLine(), balanceCount);
             }
 
             if (type != CalculatorGrammarLexer.EOF) {
@@ -61,7 +139,7 @@ public class Parser {
             }
         }
 
-        this.verifyBalanceCount(lastLine, balanceCount);
+        verifyBalanceCount(lastLine, balanceCount);
 
         if (lastWasLineContinuation) {
             throw new IncompleteInputError("Line continuation at end of file at line " + lastLine);
@@ -70,7 +148,7 @@ public class Parser {
         return stream;
     }
 
-    private void verifyBalanceCount(int lineno, int balanceCount) {
+    static void verifyBalanceCount(int lineno, int balanceCount) {
         if (balanceCount > 0) {
             // If the balance count is 0, the lexer and parser itself will catch it.
             throw new IncompleteInputError(
@@ -83,121 +161,191 @@ public class Parser {
         }
     }
 
-    private static class AstConverter extends CalculatorGrammarParserBaseVisitor<AstNode> {
-        private IList<AstNode> asList(AstNode... nodes) {
-            IList<AstNode> list = new DoubleLinkedList<>();
-            for (AstNode node : nodes) {
-                list.add(node);
-            }
-            return list;
+    /**
+     * Builds the AST while the parser runs, with the nodes built by an AstBuilder.
+     *
+     * The parser leaves each rule after all the rules inside it, so the nodes for
+     * the rules it has left are kept on a stack until the rule around them uses
+     * them. Whether each rule it's still inside would be simplified is kept on a
+     * second stack, and worked out as the parser enters the rule.
+     *
+     * The parser still leaves every rule it's inside when a syntax error stops it,
+     * so rules are only turned into nodes if the parse hasn't failed.
+     */
+    private static class AstListener extends CalculatorGrammarParserBaseListener {
+        private final CalculatorGrammarParser parser;
+        private final AstBuilder builder;
+        private final IList<AstNode> results;
+        private final IList<Boolean> simplified;
+        // The first string literal in the program, if there is one
+        private Token firstString;
+
+        public AstListener(CalculatorGrammarParser parser, FunctionTable specialFunctions) {
+            this.parser = parser;
+            this.builder = new AstBuilder(specialFunctions);
+            this.results = new DynamicArrayList<>();
+            this.simplified = new DynamicArrayList<>();
         }
 
-        @Override
-        public AstNode visitProgram(CalculatorGrammarParser.ProgramContext ctx) {
-            IList<AstNode> params = new DoubleLinkedList<>();
-            for (CalculatorGrammarParser.StatementContext stmt : ctx.statements) {
-                params.add(this.visit(stmt));
+        /**
+         * Forgets everything from the last parse.
+         */
+        public void reset() {
+            while (!this.results.isEmpty()) {
+                this.results.remove();
             }
-            return new AstNode("block", params);
-        }
-
-        @Override
-        public AstNode visitAssignStmt(CalculatorGrammarParser.AssignStmtContext ctx) {
-            return new AstNode(
-                    "assign",
-                    this.asList(
-                            new AstNode(ctx.varName.getText()),
-                            this.visit(ctx.expr)));
+            while (!this.simplified.isEmpty()) {
+                this.simplified.remove();
+            }
+            this.firstString = null;
         }
 
-        @Override
-        public AstNode visitExprStmt(CalculatorGrammarParser.ExprStmtContext ctx) {
-            return this.visit(ctx.expr);
+        /**
+         * Returns the AST of the program that was just parsed.
+         */
+        public AstNode getProgram() {
+            if (this.firstString != null) {
+                // Strings are part of the grammar, but nothing in the calculator can use them.
+                // They're only reported once the whole program has parsed, so syntax errors
+                // come first.
+                throw new ParseError(String.format(
+                        "Line %d, col %d: Strings aren't supported",
+                        this.firstString.getLine(),
+                        this.firstString.getCharPositionInLine()));
+            }
+            return this.results.remove();
         }
 
         @Override
-        public AstNode visitPowExprBin(CalculatorGrammarParser.PowExprBinContext ctx) {
-            return new AstNode(
-                    ctx.op.getText(),
-                    this.asList(this.visit(ctx.left), this.visit(ctx.right)));
+        public void enterEveryRule(ParserRuleContext ctx) {
+            if (this.simplified.isEmpty()) {
+                // The program itself
+                this.simplified.add(true);
+                return;
+            }
+            ParserRuleContext parent = ctx.getParent();
+            boolean outer = this.simplified.get(this.simplified.size() - 1);
+            boolean simplified;
+            if (parent instanceof CalculatorGrammarParser.ProgramContext) {
+                int index = ((CalculatorGrammarParser.ProgramContext) parent).statements.size();
+                simplified = this.builder.isArgumentSimplified("block", index, true);
+            } else if (parent instanceof CalculatorGrammarParser.AssignStmtContext) {
+                simplified = this.builder.isArgumentSimplified("assign", 1, outer);
+            } else if (parent instanceof CalculatorGrammarParser.ArglistContext) {
+                CalculatorGrammarParser.ArglistContext args = (CalculatorGrammarParser.ArglistContext) parent;
+                String name = ((CalculatorGrammarParser.FuncNameContext) args.getParent()).funcName.getText();
+                simplified = this.builder.isArgumentSimplified(name, args.values.size(), outer);
+            } else if (parent instanceof CalculatorGrammarParser.PowExprBinContext
+                    && ctx instanceof CalculatorGrammarParser.PowExprContext) {
+                // 'simplify' only looks at the base
+                simplified = false;
+            } else {
+                simplified = outer;
+            }
+            this.simplified.add(simplified);
         }
 
         @Override
-        public AstNode visitPowExprSingle(CalculatorGrammarParser.PowExprSingleContext ctx) {
-            return this.visit(ctx.expr);
+        public void exitEveryRule(ParserRuleContext ctx) {
+            this.simplified.remove();
         }
 
         @Override
-        public AstNode visitNegExprUnary(CalculatorGrammarParser.NegExprUnaryContext ctx) {
-            return new AstNode("negate", this.asList(this.visit(ctx.expr)));
+        public void exitProgram(CalculatorGrammarParser.ProgramContext ctx) {
+            if (this.hasFailed(ctx)) {
+                return;
+            }
+            this.results.add(this.builder.program(this.popResults(ctx.statements.size())));
         }
 
         @Override
-        public AstNode visitNegExprSingle(CalculatorGrammarParser.NegExprSingleContext ctx) {
-            return this.visit(ctx.expr);
+        public void exitAssignStmt(CalculatorGrammarParser.AssignStmtContext ctx) {
+            if (this.hasFailed(ctx)) {
+                return;
+            }
+            AstNode expr = this.results.remove();
+            this.results.add(this.builder.call(
+                    "assign",
+                    ImmutableList.of(new AstNode(ctx.varName.getText()), expr)));
         }
 
         @Override
-        public AstNode visitAddExprBin(CalculatorGrammarParser.AddExprBinContext ctx) {
-            return new AstNode(
-                    ctx.op.getText(),
-                    this.asList(this.visit(ctx.left), this.visit(ctx.right)));
+        public void exitPowExprBin(CalculatorGrammarParser.PowExprBinContext ctx) {
+            if (this.hasFailed(ctx)) {
+                return;
+            }
+            AstNode right = this.results.remove();
+            AstNode left = this.results.remove();
+            this.results.add(new AstNode(ctx.op.getText(), ImmutableList.of(left, right)));
         }
 
         @Override
-        public AstNode visitAddExprSingle(CalculatorGrammarParser.AddExprSingleContext ctx) {
-            return this.visit(ctx.expr);
+        public void exitNegExprUnary(CalculatorGrammarParser.NegExprUnaryContext ctx) {
+            if (this.hasFailed(ctx)) {
+                return;
+            }
+            this.results.add(new AstNode("negate", ImmutableList.of(this.results.remove())));
         }
 
         @Override
-        public AstNode visitMultExprBin(CalculatorGrammarParser.MultExprBinContext ctx) {
-            return new AstNode(
-                    ctx.op.getText(),
-                    this.asList(this.visit(ctx.left), this.visit(ctx.right)));
+        public void exitAddExprBin(CalculatorGrammarParser.AddExprBinContext ctx) {
+            this.exitArithmetic(ctx, ctx.op);
         }
 
         @Override
-        public AstNode visitMultExprSingle(CalculatorGrammarParser.MultExprSingleContext ctx) {
-            return this.visit(ctx.expr);
+        public void exitMultExprBin(CalculatorGrammarParser.MultExprBinContext ctx) {
+            this.exitArithmetic(ctx, ctx.op);
         }
 
         @Override
-        public AstNode visitNumber(CalculatorGrammarParser.NumberContext ctx) {
-            return new AstNode(Double.parseDouble(ctx.value.getText()));
+        public void exitNumber(CalculatorGrammarParser.NumberContext ctx) {
+            this.results.add(new AstNode(Double.parseDouble(ctx.value.getText())));
         }
 
         @Override
-        public AstNode visitRawString(CalculatorGrammarParser.RawStringContext ctx) {
-            throw new UnsupportedOperationException();
+        public void exitRawString(CalculatorGrammarParser.RawStringContext ctx) {
+            if (this.firstString == null) {
+                this.firstString = ctx.getStart();
+            }
+            this.results.add(new AstNode(ctx.rawText.getText()));
         }
 
         @Override
-        public AstNode visitVariable(CalculatorGrammarParser.VariableContext ctx) {
-            return new AstNode(ctx.getText());
+        public void exitVariable(CalculatorGrammarParser.VariableContext ctx) {
+            this.results.add(new AstNode(ctx.varName.getText()));
         }
 
         @Override
-        public AstNode visitFuncName(CalculatorGrammarParser.FuncNameContext ctx) {
-            IList<AstNode> params = this.parseArgList(ctx.args);
-            return new AstNode(ctx.funcName.getText(), params);
+        public void exitFuncName(CalculatorGrammarParser.FuncNameContext ctx) {
+            if (this.hasFailed(ctx)) {
+                return;
+            }
+            String name = ctx.funcName.getText();
+            this.results.add(this.builder.call(name, this.popResults(ctx.args.values.size())));
         }
 
-        @Override
-        public AstNode visitParenExpr(CalculatorGrammarParser.ParenExprContext ctx) {
-            return this.visit(ctx.expr);
+        private void exitArithmetic(ParserRuleContext ctx, Token op) {
+            if (this.hasFailed(ctx)) {
+                return;
+            }
+            AstNode right = this.results.remove();
+            AstNode left = this.results.remove();
+            boolean simplified = this.simplified.get(this.simplified.size() - 1);
+            this.results.add(this.builder.arithmetic(op.getText(), left, right, simplified));
         }
 
-        @Override
-        public AstNode visitArglist(CalculatorGrammarParser.ArglistContext ctx) {
-            throw new UnsupportedOperationException();
+        // Bailing out of SLL marks every rule being left, and any other error is counted
+        private boolean hasFailed(ParserRuleContext ctx) {
+            return ctx.exception != null || this.parser.getNumberOfSyntaxErrors() > 0;
         }
 
-        private IList<AstNode> parseArgList(CalculatorGrammarParser.ArglistContext args) {
-            IList<AstNode> out = new DoubleLinkedList<>();
-            for (CalculatorGrammarParser.AddExprContext item : args.values) {
-                out.add(this.visit(item));
+        // Pops the given number of results, and returns them in the order they were built
+        private IList<AstNode> popResults(int count) {
+            AstNode[] popped = new AstNode[count];
+            for (int i = count - 1; i >= 0; i--) {
+                popped[i] = this.results.remove();
             }
-            return out;
+            return ImmutableList.of(popped);
         }
     }
 
@@ -210,11 +358,12 @@ public class Parser {
                                 String msg,
                                 RecognitionException e) {
             String error;
-            if (e == null) {
-                error = msg;
+            if (offendingSymbol instanceof Token) {
+                // Worded the same way however ANTLR found the error, as PrattParser does
+                String tokenText = escape(((Token) offendingSymbol).getText());
+                error = String.format("Unexpected '%s'", tokenText);
             } else {
-                String tokenText = this.escape(e.getOffendingToken().getText());
-                error = String.format("Unxpected '%s'", tokenText);
+                error = msg;
             }
             throw new ParseError(
                     String.format(
@@ -225,7 +374,7 @@ public class Parser {
                     e);
         }
 
-        private String escape(String str) {
+        static String escape(String str) {
             StringBuilder builder = new StringBuilder();
             for (int i = 0; i < str.length(); i++) {
                 char ch = str.charAt(i);
@@ -0,0 +1,513 @@
+package calculator.parser;
+
+import calculator.ast.AstInterner;
+import calculator.ast.AstNode;
+import calculator.errors.IncompleteInputError;
+import calculator.errors.ParseError;
+import calculator.interpreter.FunctionTable;
+import datastructures.concrete.DynamicArrayList;
+import datastructures.concrete.ImmutableList;
+import datastructures.interfaces.IList;
+
+import java.util.Arrays;
+
+/**
+ * A hand-written parser for exactly the language in CalculatorGrammarParser.g4,
+ * giving back the same trees as Parser.
+ *
+ * Parser runs ANTLR's general-purpose prediction for every rule. For the short
+ * inputs typed into the calculator, that costs far more than the parsing itself.
+ * This reads the text into a few arrays of tokens, and then builds AstNodes
+ * directly by Pratt parsing: each operator has a binding power, and a single loop
+ * keeps extending the expression it has read while the next operator binds more
+ * tightly than the one the expression is an operand of.
+ *
+ *     operator   power   associativity
+ *     + -          10    left
+ *     * /          20    left
+ *     - (prefix)   30
+ *     ^            40    right
+ *
+ * As in the grammar, a prefix '-' can't start the exponent of a '^', so '2 ^ -3'
+ * is a syntax error, and '-2 ^ 2' is '-(2 ^ 2)'.
+ *
+ * It fails the same way Parser does: an IncompleteInputError if the parentheses
+ * are unbalanced at a line break or at the end of the input, or if the input ends
+ * with a line continuation, and a ParseError, with the same message, for any other
+ * syntax error. String literals are part of the grammar but can't be evaluated, so
+ * once the rest of the input has parsed, both report the first one with a
+ * ParseError.
+ *
+ * A PrattParser keeps its token arrays from one input to the next, so parsing a
+ * line doesn't allocate them again. It must therefore only be used by one thread
+ * at a time; each Calculator has its own.
+ *
+ * Parser is kept as the reference implementation of the grammar.
+ */
+public class PrattParser {
+    private final AstBuilder builder;
+    private final Tokens tokens;
+
+    /**
+     * Creates a parser that returns the tree exactly as it's written.
+     */
+    public PrattParser() {
+        this(null);
+    }
+
+    /**
+     * Creates a parser that prepares trees for the interpreter, the same way as
+     * Parser(FunctionTable).
+     */
+    public PrattParser(FunctionTable specialFunctions) {
+        this.builder = new AstBuilder(specialFunctions);
+        this.tokens = new Tokens();
+    }
+
+    public AstNode parse(String rawInput) {
+        AstNode program;
+        try {
+            this.tokens.read(rawInput);
+            Reader reader = new Reader(rawInput, this.tokens, this.builder);
+            program = reader.program();
+            // Parser only finds these once the whole program has parsed
+            reader.rejectStrings();
+        } finally {
+            this.tokens.clear();
+        }
+        // Parsing the same text twice gives back the very same tree
+        return AstInterner.shared().intern(program);
+    }
+
+    // The kinds of tokens. Whitespace and comments are skipped, and line
+    // continuations are only used to check the input is complete.
+    private static final int EOF = 0;
+    private static final int LINE_BREAK = 1;
+    private static final int IDENTIFIER = 2;
+    private static final int NUMBER = 3;
+    private static final int STRING = 4;
+    private static final int ASSIGN = 5;
+    private static final int PLUS = 6;
+    private static final int MINUS = 7;
+    private static final int MULTIPLY = 8;
+    private static final int DIVIDE = 9;
+    private static final int POW = 10;
+    private static final int COMMA = 11;
+    private static final int LPAREN = 12;
+    private static final int RPAREN = 13;
+    private static final int ERROR_TOKEN = 14;
+
+    // How tightly each operator binds to its operands; see Reader.expression
+    private static final int ADD_POWER = 10;
+    private static final int MULTIPLY_POWER = 20;
+    private static final int NEGATE_POWER = 30;
+    private static final int POW_POWER = 40;
+
+    /**
+     * The tokens of an input, stored as parallel arrays. Token i covers the text
+     * from starts[i] up to ends[i]; the last token is always EOF.
+     *
+     * Like CalculatorGrammarLexer, line breaks inside parentheses are skipped, and
+     * any character that doesn't start a token becomes an ERROR_TOKEN rather than
+     * failing right away. The checks Parser.ensureIsComplete makes are done while
+     * reading.
+     *
+     * The arrays are kept for the next input, unless they've grown past
+     * MAX_RETAINED_TOKENS.
+     */
+    private static class Tokens {
+        private static final int INITIAL_CAPACITY = 16;
+        private static final int MAX_RETAINED_TOKENS = 1 << 12;
+
+        private int[] types;
+        private int[] starts;
+        private int[] ends;
+        private int[] lines;
+        private int[] columns;
+        private int size;
+
+        // Where the lexer is up to
+        private String text;
+        private int position;
+        private int line;
+        private int lineStart;
+
+        public Tokens() {
+            this.allocate(INITIAL_CAPACITY);
+        }
+
+        public void read(String text) {
+            this.text = text;
+            this.size = 0;
+            this.position = 0;
+            this.line = 1;
+            this.lineStart = 0;
+            this.scan();
+        }
+
+        // Lets go of the input, and of the arrays if one large input made them grow too much
+        public void clear() {
+            this.text = null;
+            if (this.types.length > MAX_RETAINED_TOKENS) {
+                this.allocate(INITIAL_CAPACITY);
+            }
+        }
+
+        private void allocate(int capacity) {
+            this.types = new int[capacity];
+            this.starts = new int[capacity];
+            this.ends = new int[capacity];
+            this.lines = new int[capacity];
+            this.columns = new int[capacity];
+        }
+
+        private void scan() {
+            int nesting = 0;
+            int balanceCount = 0;
+            boolean lastWasLineContinuation = false;
+            while (this.position < this.text.length()) {
+                int start = this.position;
+                int startLine = this.line;
+                int startColumn = start - this.lineStart;
+                char ch = this.text.charAt(start);
+                int type;
+                if (ch == '\n' || ch == '\r') {
+                    this.skipLineBreaks();
+                    if (nesting > 0) {
+                        // Line breaks inside parentheses are ignored
+                        continue;
+                    }
+                    Parser.verifyBalanceCount(startLine, balanceCount);
+                    type = LINE_BREAK;
+                } else if (ch == ' ' || ch == '\t') {
+                    this.position++;
+                    continue;
+                } else if (ch == '#') {
+                    while (this.position < this.text.length() && !isLineBreak(this.text.charAt(this.position))) {
+                        this.position++;
+                    }
+                    continue;
+                } else if (ch == '\\' && start + 1 < this.text.length() && isLineBreak(this.text.charAt(start + 1))) {
+                    this.position++;
+                    this.skipLineBreaks();
+                    lastWasLineContinuation = true;
+                    continue;
+                } else if (isIdentifierStart(ch)) {
+                    this.position++;
+                    while (this.position < this.text.length() && isIdentifierPart(this.text.charAt(this.position))) {
+                        this.position++;
+                    }
+                    type = IDENTIFIER;
+                } else if (isDigit(ch)) {
+                    this.skipDigits();
+                    if (this.position + 1 < this.text.length() && this.text.charAt(this.position) == '.'
+                            && isDigit(this.text.charAt(this.position + 1))) {
+                        this.position++;
+                        this.skipDigits();
+                    }
+                    type = NUMBER;
+                } else if (ch == '"') {
+                    type = this.readString() ? STRING : ERROR_TOKEN;
+                } else if (ch == ':' && start + 1 < this.text.length() && this.text.charAt(start + 1) == '=') {
+                    this.position += 2;
+                    type = ASSIGN;
+                } else {
+                    this.position++;
+                    type = symbolType(ch);
+                    if (type == LPAREN) {
+                        nesting++;
+                        balanceCount++;
+                    } else if (type == RPAREN) {
+                        nesting = Math.max(0, nesting - 1);
+                        balanceCount--;
+                    }
+                }
+                lastWasLineContinuation = false;
+                this.add(type, start, startLine, startColumn);
+            }
+
+            Parser.verifyBalanceCount(this.line, balanceCount);
+            if (lastWasLineContinuation) {
+                throw new IncompleteInputError("Line continuation at end of file at line " + this.line);
+            }
+            this.add(EOF, this.position, this.line, this.position - this.lineStart);
+        }
+
+        private void add(int type, int start, int line, int column) {
+            if (this.size == this.types.length) {
+                int capacity = this.size * 2;
+                this.types = Arrays.copyOf(this.types, capacity);
+                this.starts = Arrays.copyOf(this.starts, capacity);
+                this.ends = Arrays.copyOf(this.ends, capacity);
+                this.lines = Arrays.copyOf(this.lines, capacity);
+                this.columns = Arrays.copyOf(this.columns, capacity);
+            }
+            this.types[this.size] = type;
+            this.starts[this.size] = start;
+            this.ends[this.size] = this.position;
+            this.lines[this.size] = line;
+            this.columns[this.size] = column;
+            this.size++;
+        }
+
+        // Like ANTLR, only '\n' starts a new line
+        private void skipLineBreaks() {
+            while (this.position < this.text.length() && isLineBreak(this.text.charAt(this.position))) {
+                if (this.text.charAt(this.position) == '\n') {
+                    this.line++;
+                    this.lineStart = this.position + 1;
+                }
+                this.position++;
+            }
+        }
+
+        private void skipDigits() {
+            while (this.position < this.text.length() && isDigit(this.text.charAt(this.position))) {
+                this.position++;
+            }
+        }
+
+        // Reads a string if it's closed before the end of the line, or just the quote otherwise
+        private boolean readString() {
+            int end = this.position + 1;
+            while (end < this.text.length()) {
+                char ch = this.text.charAt(end);
+                if (ch == '"') {
+                    this.position = end + 1;
+                    return true;
+                } else if (isLineBreak(ch)) {
+                    break;
+                } else if (ch == '\\') {
+                    if (end + 1 < this.text.length()
+                            && (this.text.charAt(end + 1) == '"' || this.text.charAt(end + 1) == '\\')) {
+                        end += 2;
+                    } else {
+                        break;
+                    }
+                } else {
+                    end++;
+                }
+            }
+            this.position++;
+            return false;
+        }
+
+        private static int symbolType(char ch) {
+            switch (ch) {
+                case '+':
+                    return PLUS;
+                case '-':
+                    return MINUS;
+                case '*':
+                    return MULTIPLY;
+                case '/':
+                    return DIVIDE;
+                case '^':
+                    return POW;
+                case ',':
+                    return COMMA;
+                case '(':
+                    return LPAREN;
+                case ')':
+                    return RPAREN;
+                default:
+                    return ERROR_TOKEN;
+            }
+        }
+
+        private static boolean isLineBreak(char ch) {
+            return ch == '\n' || ch == '\r';
+        }
+
+        private static boolean isDigit(char ch) {
+            return ch >= '0' && ch <= '9';
+        }
+
+        private static boolean isIdentifierStart(char ch) {
+            return (ch >= 'a' && ch <= 'z') || (ch >= 'A' && ch <= 'Z') || ch == '_';
+        }
+
+        private static boolean isIdentifierPart(char ch) {
+            return isIdentifierStart(ch) || isDigit(ch);
+        }
+    }
+
+    /**
+     * Builds the AST for a list of tokens. Statements, atoms and calls each have a
+     * method, and expressions are read by a single loop driven by binding powers.
+     *
+     * Each method is told whether 'simplify' would look at the expression it reads,
+     * which the AstBuilder needs to know to fold literals.
+     */
+    private static class Reader {
+        private final String text;
+        private final Tokens tokens;
+        private final AstBuilder builder;
+        private int next;
+        // The index of the first string token, or -1 if there are none
+        private int firstString;
+
+        public Reader(String text, Tokens tokens, AstBuilder builder) {
+            this.text = text;
+            this.tokens = tokens;
+            this.builder = builder;
+            this.firstString = -1;
+        }
+
+        public AstNode program() {
+            IList<AstNode> statements = new DynamicArrayList<>();
+            while (this.peek() != EOF) {
+                boolean simplified = this.builder.isArgumentSimplified("block", statements.size(), true);
+                statements.add(this.statement(simplified));
+            }
+            return this.builder.program(statements);
+        }
+
+        private AstNode statement(boolean simplified) {
+            AstNode out;
+            if (this.peek() == IDENTIFIER && this.tokens.types[this.next + 1] == ASSIGN) {
+                AstNode var = new AstNode(this.tokenText(this.next));
+                this.next += 2;
+                AstNode expr = this.expression(0, this.builder.isArgumentSimplified("assign", 1, simplified));
+                out = this.builder.call("assign", ImmutableList.of(var, expr));
+            } else {
+                out = this.expression(0, simplified);
+            }
+            this.expect(LINE_BREAK);
+            return out;
+        }
+
+        /**
+         * Reads an expression whose operators all bind more tightly than minPower.
+         *
+         * The prefix at the start of the expression is read first. Then, as long as the
+         * next operator binds more tightly than minPower, it takes everything read so far
+         * as its left operand, and its right operand is read by calling this again with
+         * the operator's own binding power. The loop stops at the first operator that
+         * binds no more tightly, leaving it to the caller. A left-associative operator
+         * therefore stops at the next operator of the same power. '^' is
+         * right-associative, so it reads its right operand with a power one lower.
+         */
+        private AstNode expression(int minPower, boolean simplified) {
+            AstNode out = this.prefix(minPower, simplified);
+            while (true) {
+                int type = this.peek();
+                int power = infixPower(type);
+                if (power <= minPower) {
+                    return out;
+                }
+                String op = this.tokenText(this.next++);
+                if (type == POW) {
+                    // 'simplify' only looks at the first base, so nothing after it is folded
+                    AstNode exponent = this.expression(POW_POWER - 1, false);
+                    out = new AstNode(op, ImmutableList.of(out, exponent));
+                } else {
+                    out = this.builder.arithmetic(op, out, this.expression(power, simplified), simplified);
+                }
+            }
+        }
+
+        // Reads a negation, or an atom. A '-' can only start an operand of an operator
+        // that binds no more tightly than negation, so there's none after a '^'.
+        private AstNode prefix(int minPower, boolean simplified) {
+            if (this.peek() == MINUS && minPower <= NEGATE_POWER) {
+                this.next++;
+                return new AstNode("negate", ImmutableList.of(this.expression(NEGATE_POWER, simplified)));
+            }
+            return this.atomExpr(simplified);
+        }
+
+        private static int infixPower(int type) {
+            switch (type) {
+                case PLUS:
+                case MINUS:
+                    return ADD_POWER;
+                case MULTIPLY:
+                case DIVIDE:
+                    return MULTIPLY_POWER;
+                case POW:
+                    return POW_POWER;
+                default:
+                    // Not an infix operator, so it ends every expression
+                    return 0;
+            }
+        }
+
+        private AstNode atomExpr(boolean simplified) {
+            int token = this.next;
+            switch (this.peek()) {
+                case NUMBER:
+                    this.next++;
+                    return new AstNode(Double.parseDouble(this.tokenText(token)));
+                case STRING:
+                    this.next++;
+                    if (this.firstString < 0) {
+                        this.firstString = token;
+                    }
+                    return new AstNode(this.tokenText(token));
+                case IDENTIFIER:
+                    this.next++;
+                    if (this.peek() != LPAREN) {
+                        return new AstNode(this.tokenText(token));
+                    }
+                    this.next++;
+                    return this.call(this.tokenText(token), simplified);
+                case LPAREN:
+                    this.next++;
+                    AstNode out = this.expression(0, simplified);
+                    this.expect(RPAREN);
+                    return out;
+                default:
+                    throw this.unexpected();
+            }
+        }
+
+        // Reads the arguments of a call, after the opening parenthesis
+        private AstNode call(String name, boolean simplified) {
+            IList<AstNode> params = new DynamicArrayList<>();
+            if (this.peek() != RPAREN) {
+                params.add(this.expression(0, this.builder.isArgumentSimplified(name, 0, simplified)));
+                while (this.peek() == COMMA) {
+                    this.next++;
+                    params.add(this.expression(0, this.builder.isArgumentSimplified(name, params.size(), simplified)));
+                }
+            }
+            this.expect(RPAREN);
+            return this.builder.call(name, params);
+        }
+
+        // Strings are part of the grammar, but nothing in the calculator can use them
+        public void rejectStrings() {
+            if (this.firstString >= 0) {
+                throw new ParseError(String.format(
+                        "Line %d, col %d: Strings aren't supported",
+                        this.tokens.lines[this.firstString],
+                        this.tokens.columns[this.firstString]));
+            }
+        }
+
+        private int peek() {
+            return this.tokens.types[this.next];
+        }
+
+        private void expect(int type) {
+            if (this.peek() != type) {
+                throw this.unexpected();
+            }
+            this.next++;
+        }
+
+        private String tokenText(int token) {
+            return this.text.substring(this.tokens.starts[token], this.tokens.ends[token]);
+        }
+
+        private ParseError unexpected() {
+            String tokenText = this.peek() == EOF ? "<EOF>" : this.tokenText(this.next);
+            return new ParseError(String.format(
+                    "Line %d, col %d: Unexpected '%s'",
+                    this.tokens.lines[this.next],
+                    this.tokens.columns[this.next],
+                    Parser.ThrowingErrorListener.escape(tokenText)));
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package datastructures.concrete;
+
+import misc.exceptions.EmptyContainerException;
+
+/**
+ * A growable list of primitive doubles.
+ *
+ * This is meant for large buffers of numbers, such as the samples taken by
+ * 'plot'. An IList<Double> needs a boxed Double for every element (plus a node
+ * per element in DoubleLinkedList); this list stores its elements directly in
+ * a double[], so each element costs 8 bytes and nothing needs to be unboxed.
+ */
+public class DoubleList {
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private double[] items;
+    private int size;
+
+    public DoubleList() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates an empty list that can hold 'capacity' numbers before it
+     * needs to resize.
+     */
+    public DoubleList(int capacity) {
+        this.items = new double[Math.max(capacity, 1)];
+        this.size = 0;
+    }
+
+    /**
+     * Creates a list holding the numbers in the given array, in order.
+     *
+     * The list uses the array directly instead of copying it, so the caller
+     * should not modify the array afterwards.
+     */
+    public DoubleList(double[] items) {
+        this.items = items.length == 0 ? new double[1] : items;
+        this.size = items.length;
+    }
+
+    /**
+     * Adds the given number to the end of this list.
+     */
+    public void add(double value) {
+        if (this.size == this.items.length) {
+            double[] temp = new double[this.items.length * 2];
+            System.arraycopy(this.items, 0, temp, 0, this.size);
+            this.items = temp;
+        }
+        this.items[this.size] = value;
+        this.size++;
+    }
+
+    /**
+     * Removes and returns the number at the end of this list.
+     *
+     * @throws EmptyContainerException if the list is empty.
+     */
+    public double remove() {
+        if (this.size == 0) {
+            throw new EmptyContainerException();
+        }
+        this.size--;
+        return this.items[this.size];
+    }
+
+    /**
+     * Returns the number located at the given index.
+     *
+     * @throws IndexOutOfBoundsException if the index < 0 or index >= this.size()
+     */
+    public double get(int index) {
+        if (index < 0 || index >= this.size) {
+            throw new IndexOutOfBoundsException();
+        }
+        return this.items[index];
+    }
+
+    /**
+     * Overwrites the number located at the given index.
+     *
+     * @throws IndexOutOfBoundsException if the index < 0 or index >= this.size()
+     */
+    public void set(int index, double value) {
+        if (index < 0 || index >= this.size) {
+            throw new IndexOutOfBoundsException();
+        }
+        this.items[index] = value;
+    }
+
+    /**
+     * Returns the number of elements in this list.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Returns 'true' if this list contains no elements, and 'false' otherwise.
+     */
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    /**
+     * Returns a new array containing every number in this list, in order.
+     */
+    public double[] toArray() {
+        double[] out = new double[this.size];
+        System.arraycopy(this.items, 0, out, 0, this.size);
+        return out;
+    }
+}
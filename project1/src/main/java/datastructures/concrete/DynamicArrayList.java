@@ -0,0 +1,212 @@
+package datastructures.concrete;
+
+import datastructures.interfaces.IList;
+import misc.exceptions.EmptyContainerException;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * An IList backed by a resizing array.
+ *
+ * Unlike DoubleLinkedList, get and set run in O(1) time and elements are
+ * stored contiguously, without a separate node object per element. Adding
+ * to or removing from the end is amortized O(1); inserting or deleting
+ * anywhere else needs to shift the later elements over, and so is O(n).
+ *
+ * Note: For more info on the expected behavior of these methods, see
+ * the source code for IList.
+ */
+public class DynamicArrayList<T> implements IList<T> {
+    private static final int DEFAULT_CAPACITY = 4;
+
+    private T[] items;
+    private int size;
+
+    public DynamicArrayList() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates an empty list that can hold 'capacity' items before it
+     * needs to resize.
+     */
+    public DynamicArrayList(int capacity) {
+        this.items = makeArray(Math.max(capacity, 1));
+        this.size = 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    private T[] makeArray(int arraySize) {
+        return (T[]) new Object[arraySize];
+    }
+
+    /**
+     * Adds the given item to the *end* of this IList.
+     */
+    @Override
+    public void add(T item) {
+        this.ensureCapacity(this.size + 1);
+        this.items[this.size] = item;
+        this.size++;
+    }
+
+    /**
+     * Removes and returns the item from the *end* of this IList.
+     *
+     * @throws EmptyContainerException if the container is empty and there is no element to remove.
+     */
+    @Override
+    public T remove() {
+        if (this.size == 0) {
+            throw new EmptyContainerException();
+        }
+        this.size--;
+        T value = this.items[this.size];
+        this.items[this.size] = null; // don't keep the removed item alive
+        return value;
+    }
+
+    /**
+     * Returns the item located at the given index.
+     *
+     * @throws IndexOutOfBoundsException if the index < 0 or index >= this.size()
+     */
+    @Override
+    public T get(int index) {
+        if (index < 0 || index >= this.size) {
+            throw new IndexOutOfBoundsException();
+        }
+        return this.items[index];
+    }
+
+    /**
+     * Overwrites the element located at the given index with the new item.
+     *
+     * @throws IndexOutOfBoundsException if the index < 0 or index >= this.size()
+     */
+    @Override
+    public void set(int index, T item) {
+        if (index < 0 || index >= this.size) {
+            throw new IndexOutOfBoundsException();
+        }
+        this.items[index] = item;
+    }
+
+    /**
+     * Inserts the given item at the given index. If there already exists an element
+     * at that index, shift over that element and any subsequent elements one index
+     * higher.
+     *
+     * @throws IndexOutOfBoundsException if the index < 0 or index >= this.size() + 1
+     */
+    @Override
+    public void insert(int index, T item) {
+        if (index < 0 || index >= this.size + 1) {
+            throw new IndexOutOfBoundsException();
+        }
+        this.ensureCapacity(this.size + 1);
+        System.arraycopy(this.items, index, this.items, index + 1, this.size - index);
+        this.items[index] = item;
+        this.size++;
+    }
+
+    /**
+     * Deletes the item at the given index. If there are any elements located at a higher
+     * index, shift them all down by one.
+     *
+     * @throws IndexOutOfBoundsException if the index < 0 or index >= this.size()
+     */
+    @Override
+    public T delete(int index) {
+        if (index < 0 || index >= this.size) {
+            throw new IndexOutOfBoundsException();
+        }
+        T value = this.items[index];
+        System.arraycopy(this.items, index + 1, this.items, index, this.size - index - 1);
+        this.size--;
+        this.items[this.size] = null;
+        return value;
+    }
+
+    /**
+     * Returns the index corresponding to the first occurrence of the given item
+     * in the list.
+     *
+     * If the item does not exist in the list, return -1.
+     */
+    @Override
+    public int indexOf(T item) {
+        for (int i = 0; i < this.size; i++) {
+            T curr = this.items[i];
+            if (curr == item || (curr != null && curr.equals(item))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the number of elements in the container.
+     */
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Returns 'true' if this container contains the given element, and 'false' otherwise.
+     */
+    @Override
+    public boolean contains(T other) {
+        return this.indexOf(other) >= 0;
+    }
+
+    /** Helper method
+     *  If the array can't hold 'capacity' items, doubles its length until it can.
+     */
+    private void ensureCapacity(int capacity) {
+        if (capacity > this.items.length) {
+            int newCapacity = this.items.length * 2;
+            while (newCapacity < capacity) {
+                newCapacity *= 2;
+            }
+            T[] temp = makeArray(newCapacity);
+            System.arraycopy(this.items, 0, temp, 0, this.size);
+            this.items = temp;
+        }
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new DynamicArrayListIterator();
+    }
+
+    private class DynamicArrayListIterator implements Iterator<T> {
+        private int next = 0;
+
+        /**
+         * Returns 'true' if the iterator still has elements to look at;
+         * returns 'false' otherwise.
+         */
+        public boolean hasNext() {
+            return this.next < DynamicArrayList.this.size;
+        }
+
+        /**
+         * Returns the next item in the iteration and internally updates the
+         * iterator to advance one element forward.
+         *
+         * @throws NoSuchElementException if we have reached the end of the iteration and
+         *         there are no more elements to look at.
+         */
+        public T next() {
+            if (!this.hasNext()) {
+                throw new NoSuchElementException();
+            }
+            T value = DynamicArrayList.this.items[this.next];
+            this.next++;
+            return value;
+        }
+    }
+}
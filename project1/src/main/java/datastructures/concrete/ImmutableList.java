@@ -0,0 +1,251 @@
+package datastructures.concrete;
+
+import datastructures.interfaces.IList;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A read-only IList whose size is fixed when it is created.
+ *
+ * Most lists of AST children hold zero, one or two items, so this class has
+ * a specialized implementation for each of those sizes: the empty list is a
+ * single shared instance, and the one- and two-element lists keep their items
+ * directly in fields instead of in separate node or array objects. Longer
+ * lists are backed by a private array.
+ *
+ * Use the static 'of' and 'copyOf' methods to create instances. Every method
+ * that would modify the list throws an UnsupportedOperationException.
+ */
+public abstract class ImmutableList<T> implements IList<T> {
+    private static final ImmutableList<Object> EMPTY = new EmptyList<>();
+
+    // Only the nested classes below may extend this class
+    private ImmutableList() {
+    }
+
+    /**
+     * Returns the shared empty list.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> ImmutableList<T> of() {
+        return (ImmutableList<T>) EMPTY;
+    }
+
+    /**
+     * Returns a list containing just the given item.
+     */
+    public static <T> ImmutableList<T> of(T item) {
+        return new SingletonList<>(item);
+    }
+
+    /**
+     * Returns a list containing the two given items, in order.
+     */
+    public static <T> ImmutableList<T> of(T first, T second) {
+        return new PairList<>(first, second);
+    }
+
+    /**
+     * Returns a list containing the given items, in order. Later changes to the
+     * array do not affect the returned list.
+     */
+    @SafeVarargs
+    public static <T> ImmutableList<T> of(T... items) {
+        switch (items.length) {
+            case 0: return of();
+            case 1: return of(items[0]);
+            case 2: return of(items[0], items[1]);
+            default: return new ArrayBackedList<>(items.clone());
+        }
+    }
+
+    /**
+     * Returns an immutable list with the same contents as the given list. If the
+     * given list is already an ImmutableList, returns it unchanged.
+     */
+    public static <T> ImmutableList<T> copyOf(IList<T> list) {
+        if (list instanceof ImmutableList) {
+            return (ImmutableList<T>) list;
+        }
+        switch (list.size()) {
+            case 0: return of();
+            case 1: return of(list.get(0));
+            case 2: return of(list.get(0), list.get(1));
+            default:
+                Object[] items = new Object[list.size()];
+                int i = 0;
+                for (T item : list) {
+                    items[i] = item;
+                    i++;
+                }
+                return new ArrayBackedList<>(items);
+        }
+    }
+
+    /**
+     * Unsupported: immutable lists can't be modified.
+     */
+    @Override
+    public void add(T item) {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Unsupported: immutable lists can't be modified.
+     */
+    @Override
+    public T remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Unsupported: immutable lists can't be modified.
+     */
+    @Override
+    public void set(int index, T item) {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Unsupported: immutable lists can't be modified.
+     */
+    @Override
+    public void insert(int index, T item) {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Unsupported: immutable lists can't be modified.
+     */
+    @Override
+    public T delete(int index) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int indexOf(T item) {
+        int size = this.size();
+        for (int i = 0; i < size; i++) {
+            T curr = this.get(i);
+            if (curr == item || (curr != null && curr.equals(item))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public boolean contains(T other) {
+        return this.indexOf(other) >= 0;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new ImmutableListIterator<>(this);
+    }
+
+    private static class EmptyList<T> extends ImmutableList<T> {
+        @Override
+        public T get(int index) {
+            throw new IndexOutOfBoundsException();
+        }
+
+        @Override
+        public int size() {
+            return 0;
+        }
+    }
+
+    private static class SingletonList<T> extends ImmutableList<T> {
+        private final T item;
+
+        public SingletonList(T item) {
+            this.item = item;
+        }
+
+        @Override
+        public T get(int index) {
+            if (index != 0) {
+                throw new IndexOutOfBoundsException();
+            }
+            return this.item;
+        }
+
+        @Override
+        public int size() {
+            return 1;
+        }
+    }
+
+    private static class PairList<T> extends ImmutableList<T> {
+        private final T first;
+        private final T second;
+
+        public PairList(T first, T second) {
+            this.first = first;
+            this.second = second;
+        }
+
+        @Override
+        public T get(int index) {
+            if (index == 0) {
+                return this.first;
+            } else if (index == 1) {
+                return this.second;
+            } else {
+                throw new IndexOutOfBoundsException();
+            }
+        }
+
+        @Override
+        public int size() {
+            return 2;
+        }
+    }
+
+    private static class ArrayBackedList<T> extends ImmutableList<T> {
+        private final Object[] items;
+
+        public ArrayBackedList(Object[] items) {
+            this.items = items;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T get(int index) {
+            if (index < 0 || index >= this.items.length) {
+                throw new IndexOutOfBoundsException();
+            }
+            return (T) this.items[index];
+        }
+
+        @Override
+        public int size() {
+            return this.items.length;
+        }
+    }
+
+    private static class ImmutableListIterator<T> implements Iterator<T> {
+        private final ImmutableList<T> list;
+        private int next;
+
+        public ImmutableListIterator(ImmutableList<T> list) {
+            this.list = list;
+            this.next = 0;
+        }
+
+        public boolean hasNext() {
+            return this.next < this.list.size();
+        }
+
+        public T next() {
+            if (!this.hasNext()) {
+                throw new NoSuchElementException();
+            }
+            T value = this.list.get(this.next);
+            this.next++;
+            return value;
+        }
+    }
+}
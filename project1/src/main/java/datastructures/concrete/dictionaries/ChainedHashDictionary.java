@@ -0,0 +1,206 @@
+package datastructures.concrete.dictionaries;
+
+import datastructures.interfaces.IDictionary;
+import misc.exceptions.NoSuchKeyException;
+
+/**
+ * A hash table implementation of IDictionary that resolves collisions
+ * using separate chaining.
+ *
+ * The table always has a power-of-two number of buckets, and doubles in
+ * size whenever the number of pairs exceeds three quarters of the number
+ * of buckets. This keeps chains short, so get, put, remove and containsKey
+ * all run in O(1) time on average.
+ *
+ * See IDictionary for more details on what this class should do.
+ */
+public class ChainedHashDictionary<K, V> implements IDictionary<K, V> {
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private Pair<K, V>[] chains;
+    private int size;
+
+    // Resize once 'size' grows past this many pairs
+    private int threshold;
+
+    public ChainedHashDictionary() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a new empty dictionary that can hold roughly 'expectedSize'
+     * pairs before it needs to resize.
+     */
+    public ChainedHashDictionary(int expectedSize) {
+        int capacity = DEFAULT_CAPACITY;
+        while (capacity * 3 / 4 < expectedSize) {
+            capacity *= 2;
+        }
+        this.chains = makeArrayOfChains(capacity);
+        this.size = 0;
+        this.threshold = capacity * 3 / 4;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Pair<K, V>[] makeArrayOfChains(int arraySize) {
+        return (Pair<K, V>[]) new Pair[arraySize];
+    }
+
+    /**
+     * Returns the value corresponding to the given key.
+     *
+     * @throws NoSuchKeyException if the dictionary does not contain the given key.
+     */
+    @Override
+    public V get(K key) {
+        Pair<K, V> pair = this.find(key);
+        if (pair == null) {
+            throw new NoSuchKeyException();
+        }
+        return pair.value;
+    }
+
+    /**
+     * Returns the value corresponding to the given key, or the default value if
+     * the dictionary does not contain the key. Only searches the table once.
+     */
+    @Override
+    public V getOrDefault(K key, V defaultValue) {
+        Pair<K, V> pair = this.find(key);
+        return pair == null ? defaultValue : pair.value;
+    }
+
+    /**
+     * Adds the key-value pair to the dictionary. If the key already exists in the dictionary,
+     * replace its value with the given one.
+     */
+    @Override
+    public void put(K key, V value) {
+        int hash = hash(key);
+        int index = hash & (this.chains.length - 1);
+        for (Pair<K, V> curr = this.chains[index]; curr != null; curr = curr.next) {
+            if (curr.hash == hash && keysMatch(curr.key, key)) {
+                curr.value = value;
+                return;
+            }
+        }
+        this.chains[index] = new Pair<>(hash, key, value, this.chains[index]);
+        this.size++;
+        if (this.size > this.threshold) {
+            this.resize();
+        }
+    }
+
+    /**
+     * Remove the key-value pair corresponding to the given key from the dictionary.
+     *
+     * @throws NoSuchKeyException if the dictionary does not contain the given key.
+     */
+    @Override
+    public V remove(K key) {
+        int hash = hash(key);
+        int index = hash & (this.chains.length - 1);
+        Pair<K, V> prev = null;
+        for (Pair<K, V> curr = this.chains[index]; curr != null; curr = curr.next) {
+            if (curr.hash == hash && keysMatch(curr.key, key)) {
+                if (prev == null) {
+                    this.chains[index] = curr.next;
+                } else {
+                    prev.next = curr.next;
+                }
+                this.size--;
+                return curr.value;
+            }
+            prev = curr;
+        }
+        throw new NoSuchKeyException();
+    }
+
+    /**
+     * Returns 'true' if the dictionary contains the given key and 'false' otherwise.
+     */
+    @Override
+    public boolean containsKey(K key) {
+        return this.find(key) != null;
+    }
+
+    /**
+     * Returns the number of key-value pairs stored in this dictionary.
+     */
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    /** Helper method
+     *  Returns the pair containing the given key, or null if there is no such pair.
+     */
+    private Pair<K, V> find(K key) {
+        int hash = hash(key);
+        Pair<K, V> curr = this.chains[hash & (this.chains.length - 1)];
+        while (curr != null) {
+            if (curr.hash == hash && keysMatch(curr.key, key)) {
+                return curr;
+            }
+            curr = curr.next;
+        }
+        return null;
+    }
+
+    /** Helper method
+     *  Doubles the number of chains and moves every pair into its new chain.
+     */
+    private void resize() {
+        Pair<K, V>[] old = this.chains;
+        this.chains = makeArrayOfChains(old.length * 2);
+        this.threshold = this.chains.length * 3 / 4;
+        int mask = this.chains.length - 1;
+        for (Pair<K, V> head : old) {
+            Pair<K, V> curr = head;
+            while (curr != null) {
+                Pair<K, V> next = curr.next;
+                int index = curr.hash & mask;
+                curr.next = this.chains[index];
+                this.chains[index] = curr;
+                curr = next;
+            }
+        }
+    }
+
+    /** Helper method
+     *  Returns the key's hash code with its high bits folded into its low bits.
+     *
+     *  We pick a chain using only the low bits of the hash, so without this step
+     *  keys whose hash codes differ only in their high bits would always collide.
+     */
+    private static int hash(Object key) {
+        if (key == null) {
+            return 0;
+        }
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private static boolean keysMatch(Object a, Object b) {
+        return a == b || (a != null && a.equals(b));
+    }
+
+    private static class Pair<K, V> {
+        public final int hash;
+        public final K key;
+        public V value;
+        public Pair<K, V> next;
+
+        public Pair(int hash, K key, V value, Pair<K, V> next) {
+            this.hash = hash;
+            this.key = key;
+            this.value = value;
+            this.next = next;
+        }
+
+        @Override
+        public String toString() {
+            return this.key + "=" + this.value;
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package datastructures.concrete.dictionaries;
+
+import datastructures.interfaces.IDictionary;
+import misc.exceptions.NoSuchKeyException;
+
+/**
+ * A dictionary that holds at most a fixed number of pairs. Once it's full, adding
+ * a new key evicts the least recently used pair: the one that has gone the longest
+ * without being added or looked up.
+ *
+ * Pairs are kept in a ChainedHashDictionary for lookups, and in a doubly-linked list
+ * ordered from most to least recently used. All operations run in O(1) time on average.
+ *
+ * The cache counts how many lookups (calls to get or getOrDefault) found their key,
+ * how many didn't, and how many pairs have been evicted, which is useful when choosing
+ * its capacity. containsKey doesn't count as a lookup, and doesn't affect the order
+ * of the pairs.
+ *
+ * See IDictionary for more details on what this class should do.
+ */
+public class LruCache<K, V> implements IDictionary<K, V> {
+    private final int capacity;
+    private final IDictionary<K, Node<K, V>> nodes;
+
+    // The most and least recently used pairs
+    private Node<K, V> front;
+    private Node<K, V> back;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Creates an empty cache that can hold up to 'capacity' pairs.
+     *
+     * @throws IllegalArgumentException  if capacity is not positive
+     */
+    public LruCache(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.nodes = new ChainedHashDictionary<>(capacity);
+        this.front = null;
+        this.back = null;
+        this.hits = 0;
+        this.misses = 0;
+        this.evictions = 0;
+    }
+
+    /**
+     * Returns the value corresponding to the given key, and marks it as the most
+     * recently used.
+     *
+     * @throws NoSuchKeyException if the cache does not contain the given key.
+     */
+    @Override
+    public V get(K key) {
+        Node<K, V> node = this.lookUp(key);
+        if (node == null) {
+            throw new NoSuchKeyException();
+        }
+        return node.value;
+    }
+
+    @Override
+    public V getOrDefault(K key, V defaultValue) {
+        Node<K, V> node = this.lookUp(key);
+        return node == null ? defaultValue : node.value;
+    }
+
+    /**
+     * Adds the given pair as the most recently used one, replacing the old value
+     * if the key is already present. Evicts the least recently used pair if the
+     * cache would otherwise hold more than 'capacity' pairs.
+     */
+    @Override
+    public void put(K key, V value) {
+        Node<K, V> node = this.nodes.getOrDefault(key, null);
+        if (node != null) {
+            node.value = value;
+            this.moveToFront(node);
+            return;
+        }
+        if (this.nodes.size() == this.capacity) {
+            Node<K, V> oldest = this.back;
+            this.unlink(oldest);
+            this.nodes.remove(oldest.key);
+            this.evictions++;
+        }
+        node = new Node<>(key, value);
+        this.nodes.put(key, node);
+        this.linkAtFront(node);
+    }
+
+    /**
+     * Removes the pair with the given key, and returns its value.
+     *
+     * @throws NoSuchKeyException if the cache does not contain the given key.
+     */
+    @Override
+    public V remove(K key) {
+        Node<K, V> node = this.nodes.remove(key);
+        this.unlink(node);
+        return node.value;
+    }
+
+    @Override
+    public boolean containsKey(K key) {
+        return this.nodes.containsKey(key);
+    }
+
+    @Override
+    public int size() {
+        return this.nodes.size();
+    }
+
+    /**
+     * Returns the most pairs this cache will hold at once.
+     */
+    public int getCapacity() {
+        return this.capacity;
+    }
+
+    /**
+     * Returns how many lookups have found their key.
+     */
+    public long getHits() {
+        return this.hits;
+    }
+
+    /**
+     * Returns how many lookups have not found their key.
+     */
+    public long getMisses() {
+        return this.misses;
+    }
+
+    /**
+     * Returns how many pairs have been evicted to make room for new ones.
+     */
+    public long getEvictions() {
+        return this.evictions;
+    }
+
+    private Node<K, V> lookUp(K key) {
+        Node<K, V> node = this.nodes.getOrDefault(key, null);
+        if (node == null) {
+            this.misses++;
+        } else {
+            this.hits++;
+            this.moveToFront(node);
+        }
+        return node;
+    }
+
+    private void moveToFront(Node<K, V> node) {
+        if (node != this.front) {
+            this.unlink(node);
+            this.linkAtFront(node);
+        }
+    }
+
+    private void linkAtFront(Node<K, V> node) {
+        node.prev = null;
+        node.next = this.front;
+        if (this.front != null) {
+            this.front.prev = node;
+        } else {
+            this.back = node;
+        }
+        this.front = node;
+    }
+
+    private void unlink(Node<K, V> node) {
+        if (node.prev != null) {
+            node.prev.next = node.next;
+        } else {
+            this.front = node.next;
+        }
+        if (node.next != null) {
+            node.next.prev = node.prev;
+        } else {
+            this.back = node.prev;
+        }
+        node.prev = null;
+        node.next = null;
+    }
+
+    private static class Node<K, V> {
+        public final K key;
+        public V value;
+        public Node<K, V> prev;
+        public Node<K, V> next;
+
+        public Node(K key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+}
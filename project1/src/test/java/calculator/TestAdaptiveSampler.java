@@ -0,0 +1,90 @@
+package calculator;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import calculator.ast.AdaptiveSampler;
+import misc.BaseTest;
+import org.junit.Test;
+
+import java.util.function.DoubleUnaryOperator;
+
+public class TestAdaptiveSampler extends BaseTest {
+    private void assertSorted(AdaptiveSampler samples, double min, double max) {
+        double[] xs = samples.getXValues();
+        assertEquals(min, xs[0]);
+        assertEquals(max, xs[xs.length - 1]);
+        for (int i = 1; i < xs.length; i++) {
+            assertTrue(xs[i - 1] < xs[i]);
+        }
+    }
+
+    private void assertMatches(AdaptiveSampler samples, DoubleUnaryOperator function) {
+        double[] xs = samples.getXValues();
+        double[] ys = samples.getYValues();
+        assertEquals(xs.length, ys.length);
+        for (int i = 0; i < xs.length; i++) {
+            assertEquals(function.applyAsDouble(xs[i]), ys[i]);
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testLineStaysCoarse() {
+        DoubleUnaryOperator line = x -> 3 * x + 1;
+        AdaptiveSampler samples = AdaptiveSampler.sample(line, 0, 10, 800, 600);
+        // The coarse grid puts a point every 4 pixels. Checking the midpoint of each
+        // of its 199 intervals shows that none of them need refining any further.
+        assertEquals(399, samples.size());
+        this.assertSorted(samples, 0, 10);
+        this.assertMatches(samples, line);
+    }
+
+    @Test(timeout=SECOND)
+    public void testCurveWithinHalfPixel() {
+        DoubleUnaryOperator curve = x -> Math.sin(x * x);
+        AdaptiveSampler samples = AdaptiveSampler.sample(curve, 0, 6, 800, 600);
+        this.assertSorted(samples, 0, 6);
+        this.assertMatches(samples, curve);
+        assertTrue(samples.size() > 200);
+        assertTrue(samples.size() <= 800 * 4);
+
+        // Drawing straight lines between the samples should stay close to the curve.
+        // The range of sin is 2, so half a pixel is 1 / 600; allow a couple of pixels
+        // since only midpoints are checked.
+        double[] xs = samples.getXValues();
+        double[] ys = samples.getYValues();
+        for (int i = 0; i + 1 < xs.length; i++) {
+            for (int j = 1; j < 4; j++) {
+                double x = xs[i] + (xs[i + 1] - xs[i]) * j / 4;
+                double line = ys[i] + (ys[i + 1] - ys[i]) * j / 4;
+                assertTrue(Math.abs(curve.applyAsDouble(x) - line) < 4.0 / 600);
+            }
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testStaysWithinBudget() {
+        DoubleUnaryOperator wild = x -> Math.sin(1 / x);
+        AdaptiveSampler samples = AdaptiveSampler.sample(wild, -1, 1, 100, 100);
+        this.assertSorted(samples, -1, 1);
+        this.assertMatches(samples, wild);
+        assertTrue(samples.size() <= 100 * 4);
+    }
+
+    @Test(timeout=SECOND)
+    public void testSinglePoint() {
+        AdaptiveSampler samples = AdaptiveSampler.sample(x -> x * 2, 3, 3, 800, 600);
+        assertEquals(1, samples.size());
+        assertEquals(6.0, samples.getYValues()[0]);
+    }
+
+    @Test(timeout=SECOND)
+    public void testBadRangeFails() {
+        try {
+            AdaptiveSampler.sample(x -> x, 1, 0, 800, 600);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException ex) {
+            // Do nothing
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package calculator;
+
+import static org.junit.Assert.assertTrue;
+
+import calculator.ast.AstInterner;
+import calculator.ast.AstNode;
+import calculator.parser.Parser;
+import datastructures.concrete.ImmutableList;
+import misc.BaseTest;
+import org.junit.Test;
+
+public class TestAstInterner extends BaseTest {
+    private AstNode parse(String input) {
+        // The parser wraps every program in a 'block'
+        return new Parser().parse(input + "\n").getChildren().get(0);
+    }
+
+    @Test(timeout=SECOND)
+    public void testEqualTreesShareInstance() {
+        AstInterner interner = new AstInterner();
+        AstNode a = interner.intern(new AstNode("+", ImmutableList.of(new AstNode("x"), new AstNode(2))));
+        AstNode b = interner.intern(new AstNode("+", ImmutableList.of(new AstNode("x"), new AstNode(2))));
+        assertTrue(a == b);
+        assertTrue(a == interner.intern(a));
+        assertTrue(a == interner.operation("+", ImmutableList.of(interner.variable("x"), interner.number(2))));
+
+        AstNode c = interner.intern(new AstNode("+", ImmutableList.of(new AstNode("x"), new AstNode(3))));
+        assertTrue(a != c);
+        assertTrue(a.getChildren().get(0) == c.getChildren().get(0));
+        assertEquals(5, interner.size());
+    }
+
+    @Test(timeout=SECOND)
+    public void testSubtreesAreShared() {
+        AstInterner interner = new AstInterner();
+        AstNode square = new AstNode("^", ImmutableList.of(new AstNode("x"), new AstNode(2)));
+        AstNode squareCopy = new AstNode("^", ImmutableList.of(new AstNode("x"), new AstNode(2)));
+        AstNode sum = interner.intern(new AstNode("+", ImmutableList.of(square, squareCopy)));
+
+        assertTrue(sum.getChildren().get(0) == sum.getChildren().get(1));
+        assertEquals(new AstNode("+", ImmutableList.of(square, squareCopy)), sum);
+        // '+', '^', 'x' and '2'
+        assertEquals(4, interner.size());
+    }
+
+    @Test(timeout=SECOND)
+    public void testLeavesStayDistinct() {
+        AstInterner interner = new AstInterner();
+        assertTrue(interner.number(0.0) != interner.number(-0.0));
+        assertTrue(interner.number(Double.NaN) == interner.number(Double.NaN));
+        assertTrue(interner.variable("f") != interner.operation("f", ImmutableList.of()));
+    }
+
+    @Test(timeout=SECOND)
+    public void testParserInternsTrees() {
+        AstNode a = this.parse("3 * x + sin(x ^ 2)");
+        AstNode b = this.parse("3 * x + sin(x ^ 2)");
+        assertTrue(a == b);
+        assertTrue(a == AstInterner.shared().intern(a));
+    }
+
+    @Test(timeout=5 * SECOND)
+    public void testDeepTrees() {
+        AstInterner interner = new AstInterner();
+        AstNode left = new AstNode("x");
+        AstNode right = new AstNode("x");
+        for (int i = 0; i < 100000; i++) {
+            left = new AstNode("+", ImmutableList.of(left, new AstNode(i)));
+            right = new AstNode("+", ImmutableList.of(right, new AstNode(i)));
+        }
+        assertTrue(interner.intern(left) == interner.intern(right));
+    }
+
+    @Test(timeout=10 * SECOND)
+    public void testUnusedNodesAreCollected() {
+        AstInterner interner = new AstInterner();
+        AstNode kept = interner.variable("kept");
+        for (int i = 0; i < 1000; i++) {
+            interner.number(i);
+        }
+
+        // Collection isn't guaranteed to happen right away, so keep asking
+        for (int i = 0; i < 50 && interner.size() > 1; i++) {
+            System.gc();
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException ex) {
+                // Do nothing
+            }
+        }
+        assertEquals(1, interner.size());
+        assertTrue(kept == interner.variable("kept"));
+    }
+}
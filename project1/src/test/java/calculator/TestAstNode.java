@@ -0,0 +1,141 @@
+package calculator;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import calculator.ast.AstNode;
+import calculator.ast.VariableSet;
+import calculator.parser.Parser;
+import datastructures.concrete.ImmutableList;
+import misc.BaseTest;
+import org.junit.Test;
+
+public class TestAstNode extends BaseTest {
+    private AstNode parse(String input) {
+        // The parser wraps every program in a 'block'
+        return new Parser().parse(input + "\n").getChildren().get(0);
+    }
+
+    @Test(timeout=SECOND)
+    public void testStructuralEquality() {
+        AstNode a = this.parse("3 * x + sin(y ^ 2)");
+        AstNode b = new AstNode("+", ImmutableList.of(
+                new AstNode("*", ImmutableList.of(new AstNode(3), new AstNode("x"))),
+                new AstNode("sin", ImmutableList.of(
+                        new AstNode("^", ImmutableList.of(new AstNode("y"), new AstNode(2)))))));
+        assertTrue(a != b);
+        assertEquals(a, b);
+        assertEquals(a.hashCode(), b.hashCode());
+
+        assertNotEquals(a, this.parse("3 * x + sin(y ^ 3)"));
+        assertNotEquals(a, this.parse("3 * x + cos(y ^ 2)"));
+        assertNotEquals(a, this.parse("sin(y ^ 2) + 3 * x"));
+        assertNotEquals(a, this.parse("3 * z + sin(y ^ 2)"));
+        assertFalse(a.equals(null));
+        assertFalse(a.equals("3 * x + sin(y ^ 2)"));
+    }
+
+    @Test(timeout=SECOND)
+    public void testLeaves() {
+        assertEquals(new AstNode(2.5), new AstNode(2.5));
+        assertEquals(new AstNode(Double.NaN), new AstNode(Double.NaN));
+        assertNotEquals(new AstNode(0.0), new AstNode(-0.0));
+        assertEquals(new AstNode("x"), new AstNode("x"));
+        assertNotEquals(new AstNode("x"), new AstNode("y"));
+        // A variable isn't equal to a call with no arguments of the same name
+        assertNotEquals(new AstNode("f"), new AstNode("f", ImmutableList.of()));
+    }
+
+    @Test(timeout=SECOND)
+    public void testDeepTrees() {
+        AstNode left = new AstNode("x");
+        AstNode right = new AstNode("x");
+        for (int i = 0; i < 100000; i++) {
+            left = new AstNode("+", ImmutableList.of(left, new AstNode(i)));
+            right = new AstNode("+", ImmutableList.of(right, new AstNode(i)));
+        }
+        assertEquals(left.hashCode(), right.hashCode());
+        assertTrue(left.equals(right));
+
+        AstNode different = new AstNode("-", ImmutableList.of(right, new AstNode(1)));
+        assertFalse(new AstNode("-", ImmutableList.of(left, new AstNode(2))).equals(different));
+    }
+
+    @Test(timeout=SECOND)
+    public void testFreeVariables() {
+        VariableSet variables = this.parse("x * y + sin(x) - 3").getFreeVariables();
+        assertEquals(2, variables.size());
+        assertTrue(variables.contains("x"));
+        assertTrue(variables.contains("y"));
+        assertFalse(variables.contains("z"));
+        assertEquals(VariableSet.of("y").union(VariableSet.of("x")), variables);
+        assertTrue(variables.intersects(VariableSet.of("x")));
+        assertFalse(variables.intersects(VariableSet.of("z")));
+        assertTrue(this.parse("2 + 3").getFreeVariables().isEmpty());
+
+        // A child's set is shared when it already has every variable
+        AstNode expr = this.parse("x * y + x");
+        assertSame(expr.getChildren().get(0).getFreeVariables(), expr.getFreeVariables());
+    }
+
+    @Test(timeout=SECOND)
+    public void testVariableSetOperations() {
+        VariableSet evens = VariableSet.EMPTY;
+        VariableSet odds = VariableSet.EMPTY;
+        for (int i = 0; i < 1000; i++) {
+            VariableSet single = VariableSet.of("many" + i);
+            assertEquals(1, single.size());
+            if (i % 2 == 0) {
+                evens = single.union(evens);
+            } else {
+                odds = odds.union(single);
+            }
+        }
+        assertEquals(500, evens.size());
+        assertTrue(evens.contains("many998"));
+        assertFalse(evens.contains("many999"));
+        assertFalse(evens.intersects(odds));
+        assertTrue(evens.intersects(odds.union(VariableSet.of("many0"))));
+        assertEquals("many0", evens.getNames().get(0));
+        assertEquals("many998", evens.getNames().get(499));
+        assertEquals(evens.union(odds), odds.union(evens));
+        assertEquals(1000, evens.union(odds).size());
+        assertSame(evens, evens.union(VariableSet.of("many10")));
+    }
+
+    @Test(timeout=5 * SECOND)
+    public void testLargeSumOfDistinctVariables() {
+        // Keeping every variable at every level of this sum would take quadratic space
+        int count = 50000;
+        AstNode sum = new AstNode("v0");
+        for (int i = 1; i < count; i++) {
+            sum = new AstNode("+", ImmutableList.of(sum, new AstNode("v" + i)));
+        }
+        VariableSet variables = sum.getFreeVariables();
+        assertEquals(count, variables.size());
+        assertTrue(variables.contains("v0"));
+        assertTrue(variables.contains("v49999"));
+        assertFalse(variables.contains("v50000"));
+        assertSame(variables, sum.getFreeVariables());
+        assertEquals(count - 1, sum.getChildren().get(0).getFreeVariables().size());
+
+        // Shared subtrees are only walked once
+        AstNode doubled = sum;
+        for (int i = 0; i < 60; i++) {
+            doubled = new AstNode("*", ImmutableList.of(doubled, doubled));
+        }
+        assertEquals(variables, doubled.getFreeVariables());
+    }
+
+    @Test(timeout=SECOND)
+    public void testCanFold() {
+        assertTrue(this.parse("x + 2 * 3").canFold());
+        assertTrue(this.parse("sin((1 + 2) / x)").canFold());
+        assertFalse(this.parse("x + y / 2").canFold());
+        assertFalse(this.parse("2 / 3").canFold());
+        assertFalse(this.parse("-2 * x").canFold());
+        assertFalse(new AstNode(4).canFold());
+    }
+}
@@ -0,0 +1,148 @@
+package calculator;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import calculator.ast.AstNode;
+import calculator.ast.ExpressionManipulators;
+import calculator.compiler.BytecodeCompiler;
+import calculator.errors.EvaluationError;
+import calculator.interpreter.Environment;
+import calculator.interpreter.FunctionTable;
+import calculator.interpreter.Interpreter;
+import calculator.parser.Parser;
+import datastructures.concrete.ImmutableList;
+import datastructures.concrete.dictionaries.ChainedHashDictionary;
+import misc.BaseTest;
+import org.junit.Test;
+
+import java.util.function.DoubleUnaryOperator;
+
+public class TestBytecodeCompiler extends BaseTest {
+    private static final String[] EXPRESSIONS = {
+        "x",
+        "42",
+        "0",
+        "1",
+        "3 * x + 2",
+        "x - 7 / x",
+        "x ^ 3 - 2 * x ^ 2",
+        "2 ^ x",
+        "x ^ 0.5",
+        "-x + -(3 * x)",
+        "sin(x) * cos(2 * x)",
+        "sin(cos(sin(x))) / (1 + x * x)",
+        "c * x + c ^ 2",
+        "y - x",
+    };
+
+    private static final double[] SAMPLES = {-10, -2.5, -1, -0.0, 0, 0.25, 1, 3, 7.75, 100};
+
+    private Environment makeEnvironment() {
+        Environment env = new Environment(
+                new ChainedHashDictionary<>(), null, new FunctionTable(), new FunctionTable(), new Interpreter());
+        env.getVariables().put("c", new AstNode(4));
+        env.getVariables().put("y", this.parse("c * 2 + sin(c)"));
+        return env;
+    }
+
+    private AstNode parse(String input) {
+        // The parser wraps every program in a 'block'
+        return new Parser().parse(input + "\n").getChildren().get(0);
+    }
+
+    private double evaluate(Environment env, AstNode expression, String var, double value) {
+        env.getVariables().put(var, new AstNode(value));
+        try {
+            return ExpressionManipulators.toDouble(env, expression).getNumericValue();
+        } finally {
+            env.getVariables().remove(var);
+        }
+    }
+
+    @Test(timeout=5 * SECOND)
+    public void testMatchesToDouble() {
+        Environment env = this.makeEnvironment();
+        for (String input : EXPRESSIONS) {
+            AstNode expression = this.parse(input);
+            DoubleUnaryOperator compiled = BytecodeCompiler.compile(env, expression, "x");
+            assertNotNull("Failed to compile " + input, compiled);
+            for (double x : SAMPLES) {
+                assertEquals(
+                        String.format("%s at x = %s", input, x),
+                        this.evaluate(env, expression, "x", x),
+                        compiled.applyAsDouble(x));
+            }
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testSharedDefinitionsCompiledOnce() {
+        // Each variable is used twice by the next, so inlining every use would take 2^40 copies
+        Environment env = this.makeEnvironment();
+        env.getVariables().put("v0", this.parse("x + c"));
+        for (int i = 1; i <= 40; i++) {
+            env.getVariables().put("v" + i, this.parse("v" + (i - 1) + " + v" + (i - 1)));
+        }
+        DoubleUnaryOperator compiled = BytecodeCompiler.compile(env, this.parse("v40 * x"), "x");
+        assertEquals(Math.pow(2, 40) * 7 * 3, compiled.applyAsDouble(3));
+    }
+
+    @Test(timeout=SECOND)
+    public void testCyclicDefinitionFails() {
+        Environment env = this.makeEnvironment();
+        env.getVariables().put("a", this.parse("b + 1"));
+        env.getVariables().put("b", this.parse("a * x"));
+        try {
+            BytecodeCompiler.compile(env, this.parse("a * x"), "x");
+            fail("Expected EvaluationError");
+        } catch (EvaluationError err) {
+            // Do nothing
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testUndefinedVariableFails() {
+        try {
+            BytecodeCompiler.compile(this.makeEnvironment(), this.parse("x + mystery"), "x");
+            fail("Expected EvaluationError");
+        } catch (EvaluationError err) {
+            // Do nothing
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testUnknownOperationFails() {
+        try {
+            BytecodeCompiler.compile(this.makeEnvironment(), this.parse("mystery(x)"), "x");
+            fail("Expected EvaluationError");
+        } catch (EvaluationError err) {
+            // Do nothing
+        }
+    }
+
+    @Test(timeout=5 * SECOND)
+    public void testDeepExpression() {
+        // Deeper than the Java call stack allows, but still small enough for one method
+        AstNode expression = new AstNode("x");
+        for (int i = 0; i < 20000; i++) {
+            expression = new AstNode("+", ImmutableList.of(expression, new AstNode("x")));
+        }
+        DoubleUnaryOperator compiled = BytecodeCompiler.compile(this.makeEnvironment(), expression, "x");
+        assertEquals(20001.0 * 3, compiled.applyAsDouble(3));
+    }
+
+    @Test(timeout=5 * SECOND)
+    public void testTooLargeReturnsNull() {
+        assertNull(BytecodeCompiler.compile(this.makeEnvironment(), makeSum(0, 1 << 15), "x"));
+    }
+
+    private static AstNode makeSum(int start, int end) {
+        if (end - start == 1) {
+            return new AstNode(start + 0.5);
+        }
+        int mid = (start + end) / 2;
+        return new AstNode("+", ImmutableList.of(makeSum(start, mid), makeSum(mid, end)));
+    }
+}
@@ -9,13 +9,17 @@ import static org.junit.Assert.fail;
 import calculator.gui.ImageDrawer;
 import calculator.errors.EvaluationError;
 import calculator.interpreter.Calculator;
-import datastructures.interfaces.IList;
+import datastructures.concrete.DoubleList;
 import misc.BaseTest;
 import org.junit.ComparisonFailure;
 import org.junit.Test;
 
 import java.awt.geom.Rectangle2D;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 public class TestCalculator extends BaseTest {
     /**
@@ -64,6 +68,64 @@ public class TestCalculator extends BaseTest {
         assertEquals("11", calc.evaluate("y"));
     }
 
+    @Test(timeout=SECOND)
+    public void testChainedRedefinition() {
+        Calculator calc = new Calculator();
+        assertEquals("y + 1", calc.evaluate("z := y + 1"));
+        assertEquals("x + 3", calc.evaluate("y := x + 3"));
+        assertEquals("x + 3 + 1", calc.evaluate("z"));
+        assertEquals("4", calc.evaluate("x := 4"));
+        assertEquals("8", calc.evaluate("z"));
+        assertEquals("6", calc.evaluate("x := 6"));
+        assertEquals("10", calc.evaluate("z"));
+        assertEquals("10", calc.evaluate("toDouble(z)"));
+        assertEquals("1", calc.evaluate("y := 1"));
+        assertEquals("2", calc.evaluate("z"));
+    }
+
+    @Test(timeout=SECOND)
+    public void testCyclicDefinitionFails() {
+        Calculator calc = new Calculator();
+        calc.evaluate("a := b + 1");
+        try {
+            // 'a * 2' simplifies to '(b + 1) * 2', which refers to 'b' itself
+            calc.evaluate("b := a * 2");
+            fail("Expected EvaluationError");
+        } catch (EvaluationError err) {
+            // Do nothing
+        }
+        // 'b' is left undefined
+        assertEquals("b + 1", calc.evaluate("a"));
+        try {
+            calc.evaluate("toDouble(b)");
+            fail("Expected EvaluationError");
+        } catch (EvaluationError err) {
+            // Do nothing
+        }
+        assertEquals("2", calc.evaluate("b := 2"));
+        assertEquals("3", calc.evaluate("a"));
+
+        // The exponent isn't simplified, so 'c' keeps referring to 'b'
+        calc.evaluate("c := 2 ^ b");
+        try {
+            calc.evaluate("b := 3 ^ c");
+            fail("Expected EvaluationError");
+        } catch (EvaluationError err) {
+            // Do nothing
+        }
+        // The previous definition survives
+        assertEquals("2", calc.evaluate("b"));
+        assertEquals("4", calc.evaluate("toDouble(c)"));
+
+        try {
+            calc.evaluate("x := x");
+            fail("Expected EvaluationError");
+        } catch (EvaluationError err) {
+            // Do nothing
+        }
+        assertEquals("x", calc.evaluate("x"));
+    }
+
     @Test(timeout=SECOND)
     public void testExample3SymbolicEvaluation() {
         Calculator calc = new Calculator();
@@ -153,8 +215,8 @@ public class TestCalculator extends BaseTest {
         calc.setImageDrawer(drawer);
 
         calc.evaluate("plot(3 * x, x, 0, 10, 1)");
-        IList<Double> xs = drawer.lastXValues;
-        IList<Double> ys = drawer.lastYValues;
+        DoubleList xs = drawer.lastXValues;
+        DoubleList ys = drawer.lastYValues;
         for (int i = 0; i <= 10; i += 1) {
             assertEquals((double) i, xs.get(i));
             assertEquals(3.0 * i, ys.get(i));
@@ -173,6 +235,83 @@ public class TestCalculator extends BaseTest {
         }
     }
 
+    @Test(timeout=5 * SECOND)
+    public void testPlotManyPoints() {
+        // Enough points that the samples are split between several threads
+        FakeImageDrawer drawer = new FakeImageDrawer();
+
+        Calculator calc = new Calculator();
+        calc.setImageDrawer(drawer);
+
+        calc.evaluate("plot(sin(x) * x * x - 1 / x, x, -50, 50, 0.0005)");
+        DoubleList xs = drawer.lastXValues;
+        DoubleList ys = drawer.lastYValues;
+        assertEquals(200001, xs.size());
+        assertEquals(200001, ys.size());
+        for (int i = 0; i < xs.size(); i++) {
+            double x = -50 + i * 0.0005;
+            assertEquals(x, xs.get(i));
+            assertEquals(Math.sin(x) * x * x - 1 / x, ys.get(i));
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testPlotConstant() {
+        FakeImageDrawer drawer = new FakeImageDrawer();
+
+        Calculator calc = new Calculator();
+        calc.setImageDrawer(drawer);
+
+        calc.evaluate("c := 3");
+        calc.evaluate("y := c * 2");
+        calc.evaluate("plot(y + 1, x, 0, 1, 0.25)");
+        assertEquals(5, drawer.lastYValues.size());
+        for (int i = 0; i < 5; i++) {
+            assertEquals(i * 0.25, drawer.lastXValues.get(i));
+            assertEquals(7.0, drawer.lastYValues.get(i));
+        }
+
+        // Depending on x through a definition still counts
+        calc.evaluate("z := x * 2");
+        calc.evaluate("plot(z + 1, x, 0, 1, 0.25)");
+        assertEquals(3.0, drawer.lastYValues.get(4));
+
+        try {
+            calc.evaluate("plot(w + 1, x, 0, 1, 0.25)");
+            fail("Expected EvaluationError");
+        } catch (EvaluationError ex) {
+            // Do nothing
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testAdaptivePlot() {
+        FakeImageDrawer drawer = new FakeImageDrawer();
+
+        Calculator calc = new Calculator();
+        calc.setImageDrawer(drawer);
+
+        calc.evaluate("c := 2");
+        calc.evaluate("plot(sin(c * x) * x, x, -5, 5)");
+        DoubleList xs = drawer.lastXValues;
+        DoubleList ys = drawer.lastYValues;
+        assertEquals(-5.0, xs.get(0));
+        assertEquals(5.0, xs.get(xs.size() - 1));
+        // Far fewer points than a fine uniform step, but at most 4 per pixel
+        assertTrue(xs.size() <= 800 * 4);
+        for (int i = 0; i < xs.size(); i++) {
+            double x = xs.get(i);
+            assertEquals(Math.sin(2 * x) * x, ys.get(i));
+        }
+
+        try {
+            calc.evaluate("plot(sin(x), x, 5, -5)");
+            fail("Expected EvaluationError");
+        } catch (EvaluationError err) {
+            // Do nothing
+        }
+    }
+
     @Test(timeout=SECOND)
     public void testPlotCleansUpVariable() {
         Calculator calc = new Calculator();
@@ -228,6 +367,20 @@ public class TestCalculator extends BaseTest {
             // Do nothing
         }
 
+        try {
+            calc.evaluate("plot(x, x, 0, 1, 0.000000000001)");
+            fail("Expected EvaluationError");
+        } catch (EvaluationError err) {
+            // Do nothing
+        }
+
+        try {
+            calc.evaluate("plot(x, x, 0, 10000000000, 1)");
+            fail("Expected EvaluationError");
+        } catch (EvaluationError err) {
+            // Do nothing
+        }
+
         calc.evaluate("x := 3");
         try {
             calc.evaluate("plot(3 * x, x, 0, 10, -11)");
@@ -237,9 +390,68 @@ public class TestCalculator extends BaseTest {
         }
     }
 
+    @Test(timeout=10 * SECOND)
+    public void testDeepExpressions() {
+        Calculator calc = new Calculator();
+        StringBuilder sum = new StringBuilder("x");
+        for (int i = 0; i < 100000; i++) {
+            sum.append(" + 1");
+        }
+
+        // Nothing to fold, since the sum is ((x + 1) + 1) + ...
+        assertEquals(sum.toString(), calc.evaluate(sum.toString()));
+        calc.evaluate("x := 0.5");
+        assertEquals("100000.5 + y", calc.evaluate(sum + " + y"));
+
+        // A failure part way through leaves the calculator usable
+        try {
+            calc.evaluate("toDouble(" + sum + " + y)");
+            fail("Expected EvaluationError");
+        } catch (EvaluationError err) {
+            // Do nothing
+        }
+        assertEquals("3.5", calc.evaluate("x + 3"));
+    }
+
+    @Test(timeout=SECOND)
+    public void testFoldingMatchesSimplify() {
+        Calculator calc = new Calculator();
+        assertEquals("f(3, 1 + 2)", calc.evaluate("f(1 + 2, 1 + 2)"));
+        assertEquals("3 ^ (1 + 1)", calc.evaluate("(1 + 2) ^ (1 + 1)"));
+        assertEquals("g(x, 3, 3 + 4)", calc.evaluate("g(x, simplify(1 + 2), 3 + 4)"));
+        assertEquals("3 * c + 4 - 1", calc.evaluate("b := (1 + 2) * c + 4 - 1"));
+        assertEquals("2", calc.evaluate("c := 2"));
+        assertEquals("9", calc.evaluate("b"));
+    }
+
+    @Test(timeout=SECOND)
+    public void testPrintInChunks() throws IOException {
+        Calculator calc = new Calculator();
+        StringBuilder input = new StringBuilder("sin(x) * 0.5");
+        for (int i = 0; i < 10000; i++) {
+            input.append(" - (y + ").append(i).append(".25) ^ 2");
+        }
+        String expected = calc.evaluate(input.toString());
+
+        List<String> chunks = new ArrayList<>();
+        calc.evaluate(input.toString(), new StringWriter() {
+            @Override
+            public StringWriter append(CharSequence csq) {
+                chunks.add(csq.toString());
+                return this;
+            }
+        });
+        assertTrue(chunks.size() > 1);
+        assertEquals(expected, String.join("", chunks));
+
+        StringBuilder out = new StringBuilder("result: ");
+        calc.evaluate("-(2 * x) / 4", out);
+        assertEquals("result: -(2 * x) / 4", out.toString());
+    }
+
     private static class FakeImageDrawer extends ImageDrawer {
-        public IList<Double> lastXValues;
-        public IList<Double> lastYValues;
+        public DoubleList lastXValues;
+        public DoubleList lastYValues;
 
         public FakeImageDrawer() {
             super(null, 800, 800);
@@ -247,7 +459,7 @@ public class TestCalculator extends BaseTest {
 
         @Override
         public void drawScatterPlot(String title, String xAxisLabel, String yAxisLabel,
-                                    IList<Double> xValues, IList<Double> yValues,
+                                    DoubleList xValues, DoubleList yValues,
                                     Rectangle2D drawReagion) {
             this.lastXValues = xValues;
             this.lastYValues = yValues;
@@ -0,0 +1,155 @@
+package calculator;
+
+import static org.junit.Assert.fail;
+
+import calculator.ast.AstNode;
+import calculator.ast.ExpressionManipulators;
+import calculator.compiler.ColumnEvaluator;
+import calculator.errors.EvaluationError;
+import calculator.interpreter.Environment;
+import calculator.interpreter.FunctionTable;
+import calculator.interpreter.Interpreter;
+import calculator.parser.Parser;
+import datastructures.concrete.dictionaries.ChainedHashDictionary;
+import misc.BaseTest;
+import org.junit.Test;
+
+public class TestColumnEvaluator extends BaseTest {
+    private static final String[] EXPRESSIONS = {
+        "x",
+        "42",
+        "3 * x + 2",
+        "x - 7 / x",
+        "x ^ 3 - 2 * x ^ 2",
+        "2 ^ x",
+        "-x + -(3 * c)",
+        "sin(x) * cos(2 * x)",
+        "sin(cos(sin(x))) / (1 + x * x)",
+        "c * x + c ^ 2 - d",
+    };
+
+    private Environment makeEnvironment() {
+        Environment env = new Environment(
+                new ChainedHashDictionary<>(), null, new FunctionTable(), new FunctionTable(), new Interpreter());
+        env.getVariables().put("c", new AstNode(4));
+        env.getVariables().put("d", this.parse("c * 2 + sin(c)"));
+        return env;
+    }
+
+    private AstNode parse(String input) {
+        // The parser wraps every program in a 'block'
+        return new Parser().parse(input + "\n").getChildren().get(0);
+    }
+
+    private double toDouble(Environment env, AstNode expression, double x) {
+        env.getVariables().put("x", new AstNode(x));
+        try {
+            return ExpressionManipulators.toDouble(env, expression).getNumericValue();
+        } finally {
+            env.getVariables().remove("x");
+        }
+    }
+
+    private double[] makeInputs(int size) {
+        // Enough values to span several chunks, with the last one partly full
+        double[] inputs = new double[size];
+        for (int i = 0; i < size; i++) {
+            inputs[i] = (i - size / 2) * 0.01;
+        }
+        return inputs;
+    }
+
+    @Test(timeout=5 * SECOND)
+    public void testMatchesToDouble() {
+        Environment env = this.makeEnvironment();
+        double[] inputs = this.makeInputs(2500);
+        for (String input : EXPRESSIONS) {
+            AstNode expression = this.parse(input);
+            double[] outputs = ColumnEvaluator.compile(env, expression, "x").evaluate(inputs);
+            assertEquals(inputs.length, outputs.length);
+            for (int i = 0; i < inputs.length; i++) {
+                assertEquals(
+                        String.format("%s at x = %s", input, inputs[i]),
+                        this.toDouble(env, expression, inputs[i]),
+                        outputs[i]);
+            }
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testEvaluateRange() {
+        Environment env = this.makeEnvironment();
+        ColumnEvaluator evaluator = ColumnEvaluator.compile(env, this.parse("x * x + c"), "x");
+        double[] inputs = this.makeInputs(3000);
+        double[] outputs = new double[inputs.length];
+        evaluator.evaluate(inputs, outputs, 1000, 2100);
+        for (int i = 0; i < inputs.length; i++) {
+            double expected = i >= 1000 && i < 2100 ? inputs[i] * inputs[i] + 4 : 0.0;
+            assertEquals(expected, outputs[i]);
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testEmptyInput() {
+        ColumnEvaluator evaluator = ColumnEvaluator.compile(this.makeEnvironment(), this.parse("x + 1"), "x");
+        assertEquals(0, evaluator.evaluate(new double[0]).length);
+    }
+
+    @Test(timeout=SECOND)
+    public void testBadRangeFails() {
+        ColumnEvaluator evaluator = ColumnEvaluator.compile(this.makeEnvironment(), this.parse("x + 1"), "x");
+        try {
+            evaluator.evaluate(new double[10], new double[5], 0, 10);
+            fail("Expected IndexOutOfBoundsException");
+        } catch (IndexOutOfBoundsException ex) {
+            // Do nothing
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testSharedDefinitionsCompiledOnce() {
+        // Each variable is used twice by the next, so inlining every use would take 2^40 copies
+        Environment env = this.makeEnvironment();
+        env.getVariables().put("v0", this.parse("x + c"));
+        for (int i = 1; i <= 40; i++) {
+            env.getVariables().put("v" + i, this.parse("v" + (i - 1) + " + v" + (i - 1)));
+        }
+        ColumnEvaluator evaluator = ColumnEvaluator.compile(env, this.parse("v40 * x"), "x");
+        double[] outputs = evaluator.evaluate(new double[] {3, 0});
+        assertEquals(Math.pow(2, 40) * 7 * 3, outputs[0]);
+        assertEquals(0.0, outputs[1]);
+    }
+
+    @Test(timeout=SECOND)
+    public void testCyclicDefinitionFails() {
+        Environment env = this.makeEnvironment();
+        env.getVariables().put("a", this.parse("b + 1"));
+        env.getVariables().put("b", this.parse("a * x"));
+        try {
+            ColumnEvaluator.compile(env, this.parse("a * x"), "x");
+            fail("Expected EvaluationError");
+        } catch (EvaluationError err) {
+            // Do nothing
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testUndefinedVariableFails() {
+        try {
+            ColumnEvaluator.compile(this.makeEnvironment(), this.parse("x + mystery"), "x");
+            fail("Expected EvaluationError");
+        } catch (EvaluationError err) {
+            // Do nothing
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testUnknownOperationFails() {
+        try {
+            ColumnEvaluator.compile(this.makeEnvironment(), this.parse("mystery(x)"), "x");
+            fail("Expected EvaluationError");
+        } catch (EvaluationError err) {
+            // Do nothing
+        }
+    }
+}
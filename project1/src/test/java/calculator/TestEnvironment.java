@@ -0,0 +1,212 @@
+package calculator;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import calculator.ast.AstNode;
+import calculator.ast.ExpressionManipulators;
+import calculator.ast.WorkStack;
+import calculator.compiler.BytecodeCompiler;
+import calculator.compiler.ColumnEvaluator;
+import calculator.compiler.StackProgram;
+import calculator.errors.EvaluationError;
+import calculator.gui.ImageDrawer;
+import calculator.interpreter.Environment;
+import calculator.interpreter.FunctionTable;
+import calculator.interpreter.Interpreter;
+import calculator.parser.Parser;
+import datastructures.concrete.DoubleList;
+import datastructures.concrete.ImmutableList;
+import datastructures.concrete.dictionaries.ChainedHashDictionary;
+import misc.BaseTest;
+import org.junit.Test;
+
+import java.awt.geom.Rectangle2D;
+
+public class TestEnvironment extends BaseTest {
+    private Environment makeEnvironment() {
+        Environment env = new Environment(
+                new ChainedHashDictionary<>(), null, new FunctionTable(), new FunctionTable(), new Interpreter());
+        env.getVariables().put("c", new AstNode(4));
+        env.getVariables().put("y", this.parse("x * c"));
+        return env;
+    }
+
+    private AstNode parse(String input) {
+        // The parser wraps every program in a 'block'
+        return new Parser().parse(input + "\n").getChildren().get(0);
+    }
+
+    private double toDouble(Environment env, String input) {
+        return ExpressionManipulators.toDouble(env, this.parse(input)).getNumericValue();
+    }
+
+    @Test(timeout=SECOND)
+    public void testUnchangedTreesAreShared() {
+        Environment env = this.makeEnvironment();
+        AstNode expr = this.parse("x * 3 + sin(z) - q");
+        assertSame(expr, ExpressionManipulators.simplify(env, expr));
+        assertSame(expr, env.getInterpreter().evaluate(env, expr));
+
+        // Substituting a definition copies the path to it, but leaves the definition alone
+        AstNode definition = env.getVariables().get("y");
+        AstNode result = ExpressionManipulators.simplify(env, this.parse("sin(q) + y"));
+        assertEquals(this.parse("sin(q) + x * 4"), result);
+        // Parsed trees are interned, so this is the very node inside the input
+        assertSame(this.parse("sin(q)"), result.getChildren().get(0));
+        assertEquals(this.parse("x * c"), definition);
+        assertSame(definition, env.getVariables().get("y"));
+    }
+
+    @Test(timeout=SECOND)
+    public void testSharedReferencesEvaluatedOnce() {
+        // Each variable is referred to twice by the next, so evaluating every
+        // reference separately would take 2^40 steps.
+        Environment env = this.makeEnvironment();
+        for (int i = 1; i <= 40; i++) {
+            env.getVariables().put("v" + i, this.parse("v" + (i - 1) + " + v" + (i - 1)));
+        }
+        env.getVariables().put("v0", new AstNode(1));
+        assertEquals(Math.pow(2, 40), this.toDouble(env, "v40"));
+        assertEquals(Math.pow(2, 40), ExpressionManipulators.simplify(env, this.parse("v40")).getNumericValue());
+    }
+
+    @Test(timeout=SECOND)
+    public void testCycleFails() {
+        Environment env = this.makeEnvironment();
+        env.getVariables().put("a", this.parse("b"));
+        env.getVariables().put("b", this.parse("a + x"));
+        env.getVariables().put("x", new AstNode(1));
+        try {
+            this.toDouble(env, "a");
+            fail("Expected EvaluationError");
+        } catch (EvaluationError err) {
+            // Do nothing
+        }
+        try {
+            ExpressionManipulators.simplify(env, this.parse("b"));
+            fail("Expected EvaluationError");
+        } catch (EvaluationError err) {
+            // Do nothing
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testPlotCycleFails() {
+        Environment env = this.makePlotEnvironment();
+        env.getVariables().put("a", this.parse("b + 1"));
+        env.getVariables().put("b", this.parse("a * 2"));
+        try {
+            ExpressionManipulators.plot(env, this.parse("plot(a * t, t, 0, 1, 0.5)"));
+            fail("Expected EvaluationError");
+        } catch (EvaluationError err) {
+            // Do nothing
+        }
+        try {
+            ExpressionManipulators.plot(env, this.parse("plot(a * t, t, 0, 1)"));
+            fail("Expected EvaluationError");
+        } catch (EvaluationError err) {
+            // Do nothing
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testPlotSharedReferences() {
+        Environment env = this.makePlotEnvironment();
+        env.getVariables().put("v0", this.parse("t"));
+        for (int i = 1; i <= 40; i++) {
+            env.getVariables().put("v" + i, this.parse("v" + (i - 1) + " + v" + (i - 1)));
+        }
+        ExpressionManipulators.plot(env, this.parse("plot(v40, t, 0, 1, 0.5)"));
+        ExpressionManipulators.plot(env, this.parse("plot(v40, t, 0, 1)"));
+    }
+
+    @Test(timeout=5 * SECOND)
+    public void testPlotDeepTree() {
+        Environment env = this.makePlotEnvironment();
+        env.getVariables().put("z", new AstNode(2));
+        AstNode expr = makeDeepSum();
+        AstNode plot = new AstNode("plot", ImmutableList.of(
+                expr, new AstNode("t"), new AstNode(0), new AstNode(1), new AstNode(0.25)));
+        assertSame(expr, ExpressionManipulators.plot(env, plot));
+
+        double[] values = ColumnEvaluator.compile(env, expr, "t").evaluate(new double[] {0, 1});
+        assertEquals(100000.0, values[0]);
+        assertEquals(150001.0, values[1]);
+        assertEquals(150001.0, StackProgram.compile(env, expr, "t").applyAsDouble(1));
+        assertEquals(0, env.getWorkStack().getFrameDepth());
+    }
+
+    @Test(timeout=5 * SECOND)
+    public void testAdaptivePlotDeepTree() {
+        // Too large to compile to bytecode, so this is sampled with a StackProgram
+        Environment env = this.makePlotEnvironment();
+        env.getVariables().put("z", new AstNode(2));
+        AstNode expr = makeDeepSum();
+        AstNode plot = new AstNode("plot", ImmutableList.of(
+                expr, new AstNode("t"), new AstNode(0), new AstNode(1)));
+        assertSame(expr, ExpressionManipulators.plot(env, plot));
+        assertNull(BytecodeCompiler.compile(env, expr, "t"));
+        assertEquals(0, env.getWorkStack().getFrameDepth());
+    }
+
+    // t + t + z + t + z + ..., with 100,000 additions
+    private static AstNode makeDeepSum() {
+        AstNode expr = new AstNode("t");
+        for (int i = 0; i < 100000; i++) {
+            expr = new AstNode("+", ImmutableList.of(expr, new AstNode(i % 2 == 0 ? "t" : "z")));
+        }
+        return expr;
+    }
+
+    private Environment makePlotEnvironment() {
+        ImageDrawer drawer = new ImageDrawer(null, 800, 800) {
+            @Override
+            public void drawScatterPlot(String title, String xAxisLabel, String yAxisLabel,
+                                        DoubleList xValues, DoubleList yValues,
+                                        Rectangle2D drawRegion) {
+                // Do nothing
+            }
+        };
+        return new Environment(
+                new ChainedHashDictionary<>(), drawer, new FunctionTable(), new FunctionTable(), new Interpreter());
+    }
+
+    @Test(timeout=5 * SECOND)
+    public void testDeepTreesUseWorkStack() {
+        Environment env = this.makeEnvironment();
+        AstNode expr = new AstNode("x");
+        for (int i = 0; i < 100000; i++) {
+            expr = new AstNode(i % 2 == 0 ? "+" : "-", ImmutableList.of(expr, new AstNode("z")));
+        }
+        WorkStack work = env.getWorkStack();
+        assertSame(expr, ExpressionManipulators.simplify(env, expr));
+        assertSame(expr, env.getInterpreter().evaluate(env, expr));
+
+        // 'x' and 'y' refer to each other, which is only found part way through
+        // evaluating their definitions on the same stack
+        env.getVariables().put("x", this.parse("y + 1"));
+        try {
+            this.toDouble(env, "x");
+            fail("Expected EvaluationError");
+        } catch (EvaluationError err) {
+            // Do nothing
+        }
+        try {
+            ExpressionManipulators.toDouble(env, expr);
+            fail("Expected EvaluationError");
+        } catch (EvaluationError err) {
+            // Do nothing
+        }
+        assertEquals(0, work.getFrameDepth());
+        assertEquals(0, work.getValueDepth());
+        assertEquals(0, work.getResultDepth());
+
+        env.getVariables().put("x", new AstNode(0.5));
+        env.getVariables().put("z", new AstNode(1));
+        assertEquals(0.5, ExpressionManipulators.toDouble(env, expr).getNumericValue());
+        assertEquals(0.5, ExpressionManipulators.simplify(env, expr).getNumericValue());
+        assertSame(work, env.getWorkStack());
+    }
+}
@@ -0,0 +1,57 @@
+package calculator;
+
+import calculator.interpreter.NumberFormatter;
+import misc.BaseTest;
+import org.junit.Test;
+
+import java.util.Random;
+
+public class TestNumberFormatter extends BaseTest {
+    // What the calculator used to print, using String.format
+    private String expected(double value) {
+        if (value == (long) value) {
+            return String.format("%d", (long) value);
+        } else {
+            return String.format("%s", value);
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testWholeNumbers() {
+        assertEquals("0", NumberFormatter.format(0));
+        assertEquals("0", NumberFormatter.format(-0.0));
+        assertEquals("17", NumberFormatter.format(17));
+        assertEquals("-42", NumberFormatter.format(-42));
+        assertEquals("10000000000", NumberFormatter.format(1e10));
+        assertEquals("1.0E300", NumberFormatter.format(1e300));
+    }
+
+    @Test(timeout=SECOND)
+    public void testFractions() {
+        assertEquals("2.5", NumberFormatter.format(2.5));
+        assertEquals("-0.125", NumberFormatter.format(-0.125));
+        assertEquals("0.001", NumberFormatter.format(0.001));
+        assertEquals("1.05", NumberFormatter.format(1.05));
+        assertEquals("100000.5", NumberFormatter.format(100000.5));
+        assertEquals("0.30000000000000004", NumberFormatter.format(0.1 + 0.2));
+        assertEquals("1.0E-4", NumberFormatter.format(0.0001));
+        assertEquals("1.23456789E7", NumberFormatter.format(12345678.9));
+        assertEquals("NaN", NumberFormatter.format(Double.NaN));
+    }
+
+    @Test(timeout=SECOND)
+    public void testMatchesStringFormat() {
+        Random random = new Random(5);
+        for (int i = 0; i < 10000; i++) {
+            double value;
+            if (i % 3 == 0) {
+                value = Double.longBitsToDouble(random.nextLong());
+            } else if (i % 3 == 1) {
+                value = (random.nextInt(2000000) - 1000000) / Math.pow(10, random.nextInt(12));
+            } else {
+                value = random.nextDouble() * Math.pow(10, random.nextInt(14) - 4);
+            }
+            assertEquals(this.expected(value), NumberFormatter.format(value));
+        }
+    }
+}
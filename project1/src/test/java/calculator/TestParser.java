@@ -0,0 +1,76 @@
+package calculator;
+
+import calculator.ast.AstManipulator;
+import calculator.ast.AstNode;
+import calculator.ast.BuiltinManipulators;
+import calculator.interpreter.FunctionTable;
+import calculator.parser.Parser;
+import misc.BaseTest;
+import org.junit.Test;
+
+public class TestParser extends BaseTest {
+    private FunctionTable makeSpecialFunctions() {
+        FunctionTable specialFunctions = new FunctionTable();
+        specialFunctions.put("block", BuiltinManipulators::handleBlock);
+        specialFunctions.put("assign", BuiltinManipulators::handleAssign);
+        specialFunctions.put("quit", BuiltinManipulators::handleQuit);
+        return specialFunctions;
+    }
+
+    // Parses the text of the expected tree, written out with explicit calls
+    private AstNode raw(String tree) {
+        return new Parser().parse(tree + "\n").getChildren().get(0);
+    }
+
+    @Test(timeout=SECOND)
+    public void testRawTreesUnchanged() {
+        AstNode tree = new Parser().parse("x := 1 + 2\n");
+        assertEquals(this.raw("block(assign(x, 1 + 2))"), tree);
+    }
+
+    @Test(timeout=SECOND)
+    public void testWrapsSpecialFunctions() {
+        Parser parser = new Parser(this.makeSpecialFunctions());
+        assertEquals(
+                this.raw("simplify(block(simplify(x + y), simplify(assign(simplify(z), simplify(x))), simplify(quit())))"),
+                parser.parse("x + y\nz := x\nquit()\n"));
+        // Calls that are already simplified aren't wrapped again
+        assertEquals(
+                this.raw("simplify(block(simplify(f(x))))"),
+                parser.parse("simplify(f(x))\n"));
+    }
+
+    @Test(timeout=SECOND)
+    public void testFoldsLiterals() {
+        Parser parser = new Parser(this.makeSpecialFunctions());
+        assertEquals(
+                this.raw("simplify(block(simplify(50 * x), simplify(assign(simplify(a), simplify(14)))))"),
+                parser.parse("(20 + 30) * x\na := 2 + 3 * 4\n"));
+        assertEquals(
+                this.raw("simplify(block(simplify(sin(3) - -(3) + 1 / 5)))"),
+                parser.parse("sin(1 + 2) - -(1 + 2) + 1 / (2 + 3)\n"));
+    }
+
+    @Test(timeout=SECOND)
+    public void testFoldsOnlyWhereSimplifyWould() {
+        Parser parser = new Parser(this.makeSpecialFunctions());
+        // 'simplify' only looks at the first argument of a function, and the base of a power
+        assertEquals(
+                this.raw("simplify(block(simplify(f(3, 1 + 2) + 3 ^ (1 + 1))))"),
+                parser.parse("f(1 + 2, 1 + 2) + (1 + 2) ^ (1 + 1)\n"));
+        assertEquals(
+                this.raw("simplify(block(simplify(f(x, simplify(3), g(2 * 2)))))"),
+                parser.parse("f(x, simplify(1 + 2), g(2 * 2))\n"));
+    }
+
+    @Test(timeout=SECOND)
+    public void testSpecialFunctionsAddedLater() {
+        FunctionTable specialFunctions = this.makeSpecialFunctions();
+        Parser parser = new Parser(specialFunctions);
+        AstManipulator identity = (env, node) -> node;
+        specialFunctions.put("keep", identity);
+        assertEquals(
+                this.raw("simplify(block(simplify(keep(simplify(x), simplify(3)))))"),
+                parser.parse("keep(x, 1 + 2)\n"));
+    }
+}
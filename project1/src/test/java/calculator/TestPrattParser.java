@@ -0,0 +1,196 @@
+package calculator;
+
+import static org.junit.Assert.fail;
+
+import calculator.ast.AstNode;
+import calculator.ast.BuiltinManipulators;
+import calculator.errors.IncompleteInputError;
+import calculator.errors.ParseError;
+import calculator.interpreter.FunctionTable;
+import calculator.parser.Parser;
+import calculator.parser.PrattParser;
+import misc.BaseTest;
+import org.junit.Test;
+
+import java.util.Random;
+
+public class TestPrattParser extends BaseTest {
+    private static final String[] INPUTS = {
+        "",
+        "\n",
+        "\n\n\r\n",
+        "1\n",
+        "1.5 + 2.25\n",
+        "x := 3\ny := x ^ 2\n",
+        "a - b - c + d\n",
+        "a / b * c / d\n",
+        "-x ^ 2\n",
+        "--x\n",
+        "a * -b ^ c ^ d / -e\n",
+        "-a * b - -c ^ 2 + d\n",
+        "a ^ b * c ^ d + e\n",
+        "2 ^ (-3) ^ 4\n",
+        "2 ^ 3 ^ 4 ^ 5\n",
+        "(2 + 3) ^ (1 + 1) * 4\n",
+        "f()\n",
+        "f(x, 1 + 2, g(2 * 2))\n",
+        "simplify(1 + 2) + toDouble(3 * 4)\n",
+        "sin(1 + 2) - -(1 + 2) + 1 / (2 + 3)\n",
+        "x := (1 +\n 2)\n",
+        "f(1,\n\n  2)  # comment\n",
+        "1 + \\\n 2\n",
+        "# only a comment\n",
+        "block(1, 2)\nassign(x, 3)\nquit()\n",
+        "_x1 := __y2\r\n",
+        "(1 + 2))\n",
+        "(1 + 2\n",
+        "1 + 2",
+        "1 + \\\n",
+        "(1 + \\\n",
+        "1 +\n",
+        "1 2\n",
+        ":= 3\n",
+        "x := \n",
+        "3 := x\n",
+        "1.\n",
+        "1 $ 2\n",
+        "f(,)\n",
+        "f(1,)\n",
+        "2 ^ -3\n",
+        "2 ^ 3 ^ -4\n",
+        "a * * b\n",
+        "\"hello\"\n",
+        "\"unterminated\n",
+        "x := \"a\\\"b\" + 1\n",
+        "\"a\" +\n",
+        ")(\n",
+        "((\n))\n",
+        "1\n)\n(\n",
+    };
+
+    // Tokens that the random inputs are made from
+    private static final String[] PIECES = {
+        "1", "2.5", "0", "x", "y", "f", "simplify", "block", "assign", "quit",
+        "+", "-", "*", "/", "^", ",", "(", ")", ":=", "\n", " ", "\\\n", "# c", "\"s\"", "$", ".",
+    };
+
+    private FunctionTable makeSpecialFunctions() {
+        FunctionTable specialFunctions = new FunctionTable();
+        specialFunctions.put("block", BuiltinManipulators::handleBlock);
+        specialFunctions.put("assign", BuiltinManipulators::handleAssign);
+        specialFunctions.put("quit", BuiltinManipulators::handleQuit);
+        return specialFunctions;
+    }
+
+    // Returns the tree, or the class and message of the exception thrown while parsing
+    private Object parse(Parser parser, String input) {
+        try {
+            return parser.parse(input);
+        } catch (RuntimeException ex) {
+            return ex.getClass().getName() + ": " + ex.getMessage();
+        }
+    }
+
+    private Object parse(PrattParser parser, String input) {
+        try {
+            return parser.parse(input);
+        } catch (RuntimeException ex) {
+            return ex.getClass().getName() + ": " + ex.getMessage();
+        }
+    }
+
+    private void assertSameAsAntlr(String input) {
+        FunctionTable specialFunctions = this.makeSpecialFunctions();
+        assertEquals(this.parse(new Parser(), input), this.parse(new PrattParser(), input));
+        assertEquals(
+                this.parse(new Parser(specialFunctions), input),
+                this.parse(new PrattParser(specialFunctions), input));
+    }
+
+    @Test(timeout=SECOND)
+    public void testMatchesAntlr() {
+        for (String input : INPUTS) {
+            this.assertSameAsAntlr(input);
+        }
+    }
+
+    @Test(timeout=5 * SECOND)
+    public void testMatchesAntlrOnRandomInputs() {
+        Random random = new Random(42);
+        for (int i = 0; i < 2000; i++) {
+            StringBuilder input = new StringBuilder();
+            int length = random.nextInt(12);
+            for (int j = 0; j < length; j++) {
+                input.append(PIECES[random.nextInt(PIECES.length)]);
+            }
+            if (random.nextInt(4) != 0) {
+                input.append('\n');
+            }
+            this.assertSameAsAntlr(input.toString());
+        }
+    }
+
+    @Test(timeout=5 * SECOND)
+    public void testReusedParser() {
+        // Inputs that fail part way through, and ones long enough to grow the token arrays
+        StringBuilder longInput = new StringBuilder("0");
+        for (int i = 0; i < 10000; i++) {
+            longInput.append(" + x").append(i % 10);
+        }
+        longInput.append('\n');
+        PrattParser reused = new PrattParser(this.makeSpecialFunctions());
+        for (int round = 0; round < 2; round++) {
+            for (String input : INPUTS) {
+                assertEquals(
+                        this.parse(new PrattParser(this.makeSpecialFunctions()), input),
+                        this.parse(reused, input));
+            }
+            assertEquals(
+                    new PrattParser(this.makeSpecialFunctions()).parse(longInput.toString()),
+                    reused.parse(longInput.toString()));
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testErrors() {
+        PrattParser parser = new PrattParser();
+        try {
+            parser.parse("1 +\n");
+            fail("Expected ParseError");
+        } catch (ParseError ex) {
+            assertEquals("Line 1, col 3: Unexpected '\\n'", ex.getMessage());
+        }
+
+        try {
+            parser.parse("x\n(1 + 2\n");
+            fail("Expected IncompleteInputError");
+        } catch (IncompleteInputError ex) {
+            assertEquals("Parens on line 3 are unbalanced; missing 1 closing parens", ex.getMessage());
+        }
+
+        try {
+            parser.parse("x := 1\ny := 2 + \"a\" * \"b\"\n");
+            fail("Expected ParseError");
+        } catch (ParseError ex) {
+            assertEquals("Line 2, col 9: Strings aren't supported", ex.getMessage());
+        }
+
+        try {
+            parser.parse("1 + \\\n");
+            fail("Expected IncompleteInputError");
+        } catch (IncompleteInputError ex) {
+            // Do nothing
+        }
+    }
+
+    @Test(timeout=10 * SECOND)
+    public void testDeepExpressions() {
+        StringBuilder input = new StringBuilder("0");
+        for (int i = 1; i < 100000; i++) {
+            input.append(" + x").append(i % 10);
+        }
+        input.append('\n');
+        AstNode tree = new PrattParser().parse(input.toString());
+        assertEquals(new Parser().parse(input.toString()), tree);
+    }
+}
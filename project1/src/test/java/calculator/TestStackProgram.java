@@ -0,0 +1,154 @@
+package calculator;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.fail;
+
+import calculator.ast.AstNode;
+import calculator.ast.ExpressionManipulators;
+import calculator.compiler.StackProgram;
+import calculator.errors.EvaluationError;
+import calculator.interpreter.Environment;
+import calculator.interpreter.FunctionTable;
+import calculator.interpreter.Interpreter;
+import calculator.parser.Parser;
+import datastructures.concrete.ImmutableList;
+import datastructures.concrete.dictionaries.ChainedHashDictionary;
+import misc.BaseTest;
+import org.junit.Test;
+
+import java.util.function.DoubleUnaryOperator;
+
+public class TestStackProgram extends BaseTest {
+    private static final String[] EXPRESSIONS = {
+        "x",
+        "42",
+        "3 * x + 2 * y",
+        "x - 7 / y",
+        "x ^ 3 - 2 * y ^ 2",
+        "2 ^ x",
+        "x ^ 0.5",
+        "-x + -(3 * y)",
+        "sin(x) * cos(2 * y)",
+        "sin(cos(sin(x))) / (1 + x * y)",
+        "c * x + c ^ 2 - d",
+        "(((x + 1) * (y + 2)) - ((x + 3) * (y + 4))) / ((x + 5) * (y + 6))",
+    };
+
+    private static final double[] SAMPLES = {-10, -2.5, -1, -0.0, 0, 0.25, 1, 3, 7.75, 100};
+
+    private Environment makeEnvironment() {
+        Environment env = new Environment(
+                new ChainedHashDictionary<>(), null, new FunctionTable(), new FunctionTable(), new Interpreter());
+        env.getVariables().put("c", new AstNode(4));
+        env.getVariables().put("d", this.parse("c * 2 + sin(c)"));
+        return env;
+    }
+
+    private AstNode parse(String input) {
+        // The parser wraps every program in a 'block'
+        return new Parser().parse(input + "\n").getChildren().get(0);
+    }
+
+    private double toDouble(Environment env, AstNode expression, double x, double y) {
+        env.getVariables().put("x", new AstNode(x));
+        env.getVariables().put("y", new AstNode(y));
+        try {
+            return ExpressionManipulators.toDouble(env, expression).getNumericValue();
+        } finally {
+            env.getVariables().remove("x");
+            env.getVariables().remove("y");
+        }
+    }
+
+    @Test(timeout=5 * SECOND)
+    public void testMatchesToDouble() {
+        Environment env = this.makeEnvironment();
+        for (String input : EXPRESSIONS) {
+            AstNode expression = this.parse(input);
+            StackProgram program = StackProgram.compile(env, expression, "x", "y");
+            for (double x : SAMPLES) {
+                for (double y : SAMPLES) {
+                    assertEquals(
+                            String.format("%s at x = %s, y = %s", input, x, y),
+                            this.toDouble(env, expression, x, y),
+                            program.evaluate(new double[] {x, y}));
+                }
+            }
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testSingleParameter() {
+        Environment env = this.makeEnvironment();
+        StackProgram program = StackProgram.compile(env, this.parse("x * x + c"), "x");
+        assertArrayEquals(new String[] {"x"}, program.getParameters());
+        assertEquals(13.0, program.applyAsDouble(3));
+        assertEquals(13.0, program.copy().applyAsDouble(-3));
+    }
+
+    @Test(timeout=5 * SECOND)
+    public void testDeepExpression() {
+        // A balanced tree of 2^16 leaves: too large for a single JVM method,
+        // but the stack machine has no such limit.
+        Environment env = this.makeEnvironment();
+        StackProgram program = StackProgram.compile(env, makeSum(0, 1 << 16), "x");
+        double expected = 0;
+        for (int i = 0; i < 1 << 16; i++) {
+            expected += i;
+        }
+        assertEquals(expected + (1 << 16) * 2.0, program.applyAsDouble(2));
+    }
+
+    @Test(timeout=SECOND)
+    public void testSharedDefinitionsCompiledOnce() {
+        // Each variable is used twice by the next, so inlining every use would take 2^40 copies
+        Environment env = this.makeEnvironment();
+        env.getVariables().put("v0", this.parse("x + c"));
+        for (int i = 1; i <= 40; i++) {
+            env.getVariables().put("v" + i, this.parse("v" + (i - 1) + " + v" + (i - 1)));
+        }
+        DoubleUnaryOperator compiled = StackProgram.compile(env, this.parse("v40 * x"), "x");
+        assertEquals(Math.pow(2, 40) * 7 * 3, compiled.applyAsDouble(3));
+    }
+
+    @Test(timeout=SECOND)
+    public void testCyclicDefinitionFails() {
+        Environment env = this.makeEnvironment();
+        env.getVariables().put("a", this.parse("b + 1"));
+        env.getVariables().put("b", this.parse("a * x"));
+        try {
+            StackProgram.compile(env, this.parse("a * x"), "x");
+            fail("Expected EvaluationError");
+        } catch (EvaluationError err) {
+            // Do nothing
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testUndefinedVariableFails() {
+        try {
+            StackProgram.compile(this.makeEnvironment(), this.parse("x + mystery"), "x");
+            fail("Expected EvaluationError");
+        } catch (EvaluationError err) {
+            // Do nothing
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testUnknownOperationFails() {
+        try {
+            StackProgram.compile(this.makeEnvironment(), this.parse("mystery(x)"), "x");
+            fail("Expected EvaluationError");
+        } catch (EvaluationError err) {
+            // Do nothing
+        }
+    }
+
+    private static AstNode makeSum(int start, int end) {
+        if (end - start == 1) {
+            return new AstNode("+", ImmutableList.of(new AstNode(start), new AstNode("x")));
+        }
+        int mid = (start + end) / 2;
+        return new AstNode("+", ImmutableList.of(makeSum(start, mid), makeSum(mid, end)));
+    }
+}
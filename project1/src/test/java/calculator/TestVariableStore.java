@@ -0,0 +1,231 @@
+package calculator;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import calculator.ast.AstNode;
+import calculator.ast.ExpressionManipulators;
+import calculator.errors.EvaluationError;
+import calculator.interpreter.Environment;
+import calculator.interpreter.FunctionTable;
+import calculator.interpreter.Interpreter;
+import calculator.interpreter.VariableStore;
+import calculator.parser.Parser;
+import datastructures.concrete.dictionaries.LruCache;
+import misc.BaseTest;
+import misc.exceptions.NoSuchKeyException;
+import org.junit.Test;
+
+import java.util.function.ToDoubleFunction;
+
+public class TestVariableStore extends BaseTest {
+    private AstNode parse(String input) {
+        // The parser wraps every program in a 'block'
+        return new Parser().parse(input + "\n").getChildren().get(0);
+    }
+
+    private Environment makeEnvironment(VariableStore store) {
+        return new Environment(store, null, new FunctionTable(), new FunctionTable(), new Interpreter());
+    }
+
+    /**
+     * Evaluates definitions with toDouble, counting how many definitions it evaluates.
+     */
+    private static class CountingEvaluator implements ToDoubleFunction<AstNode> {
+        private final Environment env;
+        public int count = 0;
+
+        public CountingEvaluator(Environment env) {
+            this.env = env;
+        }
+
+        @Override
+        public double applyAsDouble(AstNode definition) {
+            this.count++;
+            return ExpressionManipulators.toDouble(this.env, definition).getNumericValue();
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testBasicDictionary() {
+        VariableStore store = new VariableStore();
+        assertTrue(store.isEmpty());
+        store.put("a", new AstNode(1));
+        store.put("b", this.parse("a + 1"));
+        assertEquals(2, store.size());
+        assertTrue(store.containsKey("b"));
+        assertFalse(store.containsKey("c"));
+        assertEquals(1.0, store.get("a").getNumericValue());
+
+        store.put("a", new AstNode(5));
+        assertEquals(2, store.size());
+        assertEquals(5.0, store.remove("a").getNumericValue());
+        assertEquals(1, store.size());
+        assertFalse(store.containsKey("a"));
+        assertNull(store.getOrDefault("a", null));
+
+        try {
+            store.get("a");
+            fail("Expected NoSuchKeyException");
+        } catch (NoSuchKeyException ex) {
+            // Do nothing
+        }
+        try {
+            store.remove("a");
+            fail("Expected NoSuchKeyException");
+        } catch (NoSuchKeyException ex) {
+            // Do nothing
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testNumericValueIsCached() {
+        VariableStore store = new VariableStore();
+        Environment env = this.makeEnvironment(store);
+        store.put("a", new AstNode(2));
+        store.put("b", this.parse("a * 3"));
+        store.put("c", this.parse("b + a"));
+
+        assertEquals(8.0, ExpressionManipulators.toDouble(env, this.parse("c")).getNumericValue());
+        CountingEvaluator evaluator = new CountingEvaluator(env);
+        assertEquals(8.0, store.getNumericValue("c", evaluator));
+        assertEquals(0, evaluator.count);
+    }
+
+    @Test(timeout=SECOND)
+    public void testRedefinitionInvalidatesDependents() {
+        VariableStore store = new VariableStore();
+        Environment env = this.makeEnvironment(store);
+        CountingEvaluator evaluator = new CountingEvaluator(env);
+        store.put("a", new AstNode(2));
+        store.put("b", this.parse("a * 3"));
+        store.put("c", this.parse("b + a"));
+        store.put("other", this.parse("5 * 5"));
+        assertEquals(8.0, store.getNumericValue("c", evaluator));
+        assertEquals(25.0, store.getNumericValue("other", evaluator));
+
+        store.put("a", new AstNode(10));
+        evaluator.count = 0;
+        assertEquals(40.0, store.getNumericValue("c", evaluator));
+        assertEquals(25.0, store.getNumericValue("other", evaluator));
+        // Only 'c' is evaluated through the evaluator: 'b' and 'a' are evaluated by toDouble
+        // on the way, and 'other' doesn't depend on 'a' at all
+        assertEquals(1, evaluator.count);
+
+        store.remove("a");
+        try {
+            store.getNumericValue("c", evaluator);
+            fail("Expected EvaluationError");
+        } catch (EvaluationError err) {
+            // Do nothing
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testDefiningLaterInvalidates() {
+        VariableStore store = new VariableStore();
+        Environment env = this.makeEnvironment(store);
+        store.put("y", this.parse("x + 3"));
+        assertTrue(ExpressionManipulators.simplify(env, this.parse("y")).isOperation());
+
+        store.put("x", new AstNode(4));
+        AstNode simplified = ExpressionManipulators.simplify(env, this.parse("y"));
+        assertTrue(simplified.isNumber());
+        assertEquals(7.0, simplified.getNumericValue());
+    }
+
+    @Test(timeout=SECOND)
+    public void testCycleFails() {
+        VariableStore store = new VariableStore();
+        Environment env = this.makeEnvironment(store);
+        store.put("a", this.parse("b + 1"));
+        store.put("b", this.parse("a * 2"));
+        try {
+            ExpressionManipulators.toDouble(env, this.parse("a"));
+            fail("Expected EvaluationError");
+        } catch (EvaluationError err) {
+            // Do nothing
+        }
+        try {
+            ExpressionManipulators.simplify(env, this.parse("b"));
+            fail("Expected EvaluationError");
+        } catch (EvaluationError err) {
+            // Do nothing
+        }
+
+        // Breaking the cycle makes both usable again
+        store.put("b", new AstNode(1));
+        assertEquals(2.0, ExpressionManipulators.toDouble(env, this.parse("a")).getNumericValue());
+    }
+
+    @Test(timeout=SECOND)
+    public void testDependsOn() {
+        VariableStore store = new VariableStore();
+        store.put("a", this.parse("b + 1"));
+        store.put("b", this.parse("c * 2"));
+        store.put("d", new AstNode(4));
+        assertTrue(store.dependsOn(this.parse("c"), "c"));
+        assertTrue(store.dependsOn(this.parse("a + d"), "c"));
+        assertTrue(store.dependsOn(this.parse("sin(b)"), "c"));
+        assertFalse(store.dependsOn(this.parse("d + e"), "c"));
+        assertFalse(store.dependsOn(this.parse("c"), "a"));
+
+        // Dependencies follow redefinitions
+        store.put("b", new AstNode(3));
+        assertFalse(store.dependsOn(this.parse("a"), "c"));
+    }
+
+    @Test(timeout=SECOND)
+    public void testExpressionCache() {
+        VariableStore store = new VariableStore();
+        Environment env = this.makeEnvironment(store);
+        LruCache<AstNode, VariableStore.CachedExpression> cache = store.getExpressionCache();
+        store.put("a", new AstNode(2));
+        store.put("b", this.parse("a * 3"));
+        store.put("other", new AstNode(7));
+
+        AstNode simplified = ExpressionManipulators.simplify(env, this.parse("b + c"));
+        assertEquals(0L, cache.getHits());
+        assertEquals(1L, cache.getMisses());
+        // A structurally equal expression reuses the same result
+        assertTrue(simplified == ExpressionManipulators.simplify(env, this.parse("b + c")));
+        assertEquals(1L, cache.getHits());
+
+        // Changing an unrelated variable keeps the result...
+        store.put("other", new AstNode(8));
+        assertTrue(simplified == ExpressionManipulators.simplify(env, this.parse("b + c")));
+
+        // ... but changing one it depends on, even indirectly, doesn't
+        store.put("a", new AstNode(4));
+        AstNode updated = ExpressionManipulators.simplify(env, this.parse("b + c"));
+        assertEquals(this.parse("12 + c"), updated);
+
+        // Neither does defining a variable that used to be undefined
+        store.put("c", new AstNode(1));
+        assertEquals(new AstNode(13), ExpressionManipulators.simplify(env, this.parse("b + c")));
+        assertEquals(13.0, ExpressionManipulators.toDouble(env, this.parse("b + c")).getNumericValue());
+    }
+
+    @Test(timeout=SECOND)
+    public void testExpressionCacheEvicts() {
+        VariableStore store = new VariableStore(2);
+        Environment env = this.makeEnvironment(store);
+        for (int i = 0; i < 5; i++) {
+            ExpressionManipulators.simplify(env, this.parse("x + " + i));
+        }
+        assertEquals(2, store.getExpressionCache().size());
+        assertEquals(3L, store.getExpressionCache().getEvictions());
+    }
+
+    @Test(timeout=SECOND)
+    public void testNullDefinitionFails() {
+        try {
+            new VariableStore().put("a", null);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException ex) {
+            // Do nothing
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package datastructures;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.fail;
+
+import datastructures.concrete.DoubleList;
+import misc.BaseTest;
+import misc.exceptions.EmptyContainerException;
+import org.junit.Test;
+
+public class TestDoubleList extends BaseTest {
+    @Test(timeout=SECOND)
+    public void testAddAndGetBasic() {
+        DoubleList list = new DoubleList();
+        assertTrue(list.isEmpty());
+
+        list.add(1.5);
+        list.add(-2.0);
+        list.add(3.25);
+
+        assertEquals(3, list.size());
+        assertFalse(list.isEmpty());
+        assertEquals(1.5, list.get(0));
+        assertEquals(-2.0, list.get(1));
+        assertEquals(3.25, list.get(2));
+        assertArrayEquals(new double[] {1.5, -2.0, 3.25}, list.toArray(), 0.0);
+    }
+
+    @Test(timeout=SECOND)
+    public void testSetAndRemove() {
+        DoubleList list = new DoubleList(1);
+        list.add(1.0);
+        list.add(2.0);
+        list.set(0, 10.0);
+
+        assertEquals(2.0, list.remove());
+        assertEquals(10.0, list.remove());
+        assertTrue(list.isEmpty());
+
+        try {
+            list.remove();
+            fail("Expected EmptyContainerException");
+        } catch (EmptyContainerException ex) {
+            // This is ok: do nothing
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testWrapArray() {
+        DoubleList list = new DoubleList(new double[] {1.0, 2.0, 3.0});
+        assertEquals(3, list.size());
+        assertEquals(2.0, list.get(1));
+        list.add(4.0);
+        assertEquals(4.0, list.get(3));
+
+        DoubleList empty = new DoubleList(new double[0]);
+        assertTrue(empty.isEmpty());
+        empty.add(5.0);
+        assertEquals(5.0, empty.get(0));
+    }
+
+    @Test(timeout=SECOND)
+    public void testOutOfBounds() {
+        DoubleList list = new DoubleList();
+        list.add(1.0);
+
+        try {
+            list.get(1);
+            fail("Expected IndexOutOfBoundsException");
+        } catch (IndexOutOfBoundsException ex) {
+            // This is ok: do nothing
+        }
+
+        try {
+            list.set(-1, 0.0);
+            fail("Expected IndexOutOfBoundsException");
+        } catch (IndexOutOfBoundsException ex) {
+            // This is ok: do nothing
+        }
+    }
+
+    @Test(timeout=5 * SECOND)
+    public void testAddManyIsEfficient() {
+        DoubleList list = new DoubleList();
+        int cap = 5000000;
+        for (int i = 0; i < cap; i++) {
+            list.add(i * 0.5);
+        }
+        assertEquals(cap, list.size());
+        for (int i = cap - 1; i >= 0; i--) {
+            assertEquals(i * 0.5, list.get(i));
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package datastructures;
+
+import static org.junit.Assert.assertEquals;
+
+import datastructures.concrete.DynamicArrayList;
+import datastructures.interfaces.IList;
+import org.junit.Test;
+
+/**
+ * Runs every DoubleLinkedList test against DynamicArrayList as well.
+ */
+public class TestDynamicArrayList extends TestDoubleLinkedList {
+    @Override
+    protected <T> IList<T> makeInstance() {
+        return new DynamicArrayList<>();
+    }
+
+    /**
+     * Inserting at the front of an array-backed list shifts every element,
+     * so we check correctness on a smaller list instead of efficiency.
+     */
+    @Override
+    @Test(timeout=SECOND)
+    public void testInsertAtFrontIsEfficient() {
+        IList<Integer> list = this.makeInstance();
+        int cap = 1000;
+        for (int i = 0; i < cap; i++) {
+            list.insert(0, i * 2);
+        }
+        assertEquals(cap, list.size());
+        for (int i = 0; i < cap; i++) {
+            assertEquals((cap - 1 - i) * 2, (int) list.get(i));
+        }
+    }
+
+    @Test(timeout=5 * SECOND)
+    public void testGetAndSetAreEfficient() {
+        IList<Integer> list = this.makeInstance();
+        int cap = 1000000;
+        for (int i = 0; i < cap; i++) {
+            list.add(i);
+        }
+        for (int i = 0; i < cap; i++) {
+            list.set(i, list.get(i) * 2);
+        }
+        for (int i = cap - 1; i >= 0; i--) {
+            assertEquals(i * 2, (int) list.get(i));
+        }
+    }
+}
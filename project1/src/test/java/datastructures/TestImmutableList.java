@@ -0,0 +1,125 @@
+package datastructures;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import datastructures.concrete.DynamicArrayList;
+import datastructures.concrete.ImmutableList;
+import datastructures.interfaces.IList;
+import misc.BaseTest;
+import org.junit.Test;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+public class TestImmutableList extends BaseTest {
+    private <T> void assertListMatches(T[] expected, IList<T> actual) {
+        assertEquals(expected.length, actual.size());
+        assertEquals(expected.length == 0, actual.isEmpty());
+
+        Iterator<T> iter = actual.iterator();
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals("Item at index " + i + " does not match", expected[i], actual.get(i));
+            assertTrue(iter.hasNext());
+            assertEquals(expected[i], iter.next());
+        }
+        assertFalse(iter.hasNext());
+
+        try {
+            actual.get(expected.length);
+            fail("Expected IndexOutOfBoundsException");
+        } catch (IndexOutOfBoundsException ex) {
+            // This is ok: do nothing
+        }
+
+        try {
+            iter.next();
+            fail("Expected NoSuchElementException");
+        } catch (NoSuchElementException ex) {
+            // This is ok: do nothing
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testEachSize() {
+        this.assertListMatches(new String[] {}, ImmutableList.of());
+        this.assertListMatches(new String[] {"a"}, ImmutableList.of("a"));
+        this.assertListMatches(new String[] {"a", "b"}, ImmutableList.of("a", "b"));
+        this.assertListMatches(new String[] {"a", "b", "c"}, ImmutableList.of("a", "b", "c"));
+    }
+
+    @Test(timeout=SECOND)
+    public void testEmptyListIsShared() {
+        IList<String> first = ImmutableList.of();
+        IList<Integer> second = ImmutableList.copyOf(new DynamicArrayList<>());
+        assertSame(first, second);
+    }
+
+    @Test(timeout=SECOND)
+    public void testCopyOf() {
+        IList<String> source = new DynamicArrayList<>();
+        for (int size = 0; size < 5; size++) {
+            String[] expected = new String[size];
+            for (int i = 0; i < size; i++) {
+                expected[i] = "item" + i;
+            }
+
+            IList<String> copy = ImmutableList.copyOf(source);
+            this.assertListMatches(expected, copy);
+            assertSame(copy, ImmutableList.copyOf(copy));
+
+            // Changing the source afterwards doesn't change the copy
+            source.add("item" + size);
+            this.assertListMatches(expected, copy);
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testArrayIsCopied() {
+        String[] items = {"a", "b", "c"};
+        IList<String> list = ImmutableList.of(items);
+        items[0] = "z";
+        this.assertListMatches(new String[] {"a", "b", "c"}, list);
+    }
+
+    @Test(timeout=SECOND)
+    public void testIndexOfAndContains() {
+        IList<String> list = ImmutableList.of("a", null, "c");
+        assertEquals(0, list.indexOf("a"));
+        assertEquals(1, list.indexOf(null));
+        assertEquals(2, list.indexOf("c"));
+        assertEquals(-1, list.indexOf("d"));
+        assertTrue(list.contains(null));
+        assertFalse(ImmutableList.of("a", "b").contains(null));
+    }
+
+    @Test(timeout=SECOND)
+    public void testModificationIsUnsupported() {
+        IList<String> list = ImmutableList.of("a", "b");
+        try {
+            list.add("c");
+            fail("Expected UnsupportedOperationException");
+        } catch (UnsupportedOperationException ex) {
+            // This is ok: do nothing
+        }
+
+        try {
+            list.set(0, "c");
+            fail("Expected UnsupportedOperationException");
+        } catch (UnsupportedOperationException ex) {
+            // This is ok: do nothing
+        }
+
+        try {
+            list.remove();
+            fail("Expected UnsupportedOperationException");
+        } catch (UnsupportedOperationException ex) {
+            // This is ok: do nothing
+        }
+
+        this.assertListMatches(new String[] {"a", "b"}, list);
+    }
+}
@@ -0,0 +1,116 @@
+package datastructures;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import datastructures.concrete.dictionaries.LruCache;
+import misc.BaseTest;
+import misc.exceptions.NoSuchKeyException;
+import org.junit.Test;
+
+public class TestLruCache extends BaseTest {
+    @Test(timeout=SECOND)
+    public void testBasicPutAndGet() {
+        LruCache<String, Integer> cache = new LruCache<>(3);
+        assertTrue(cache.isEmpty());
+        cache.put("a", 1);
+        cache.put("b", 2);
+        cache.put("a", 3);
+        assertEquals(2, cache.size());
+        assertEquals(3, (int) cache.get("a"));
+        assertEquals(2, (int) cache.get("b"));
+        assertTrue(cache.containsKey("a"));
+        assertFalse(cache.containsKey("c"));
+        assertEquals(3, cache.getCapacity());
+    }
+
+    @Test(timeout=SECOND)
+    public void testEvictsLeastRecentlyUsed() {
+        LruCache<String, Integer> cache = new LruCache<>(3);
+        cache.put("a", 1);
+        cache.put("b", 2);
+        cache.put("c", 3);
+
+        // Using 'a' makes 'b' the least recently used
+        cache.get("a");
+        cache.put("d", 4);
+        assertEquals(3, cache.size());
+        assertFalse(cache.containsKey("b"));
+        assertTrue(cache.containsKey("a"));
+        assertTrue(cache.containsKey("c"));
+        assertTrue(cache.containsKey("d"));
+
+        // Replacing a value also counts as a use
+        cache.put("c", 30);
+        cache.put("e", 5);
+        assertFalse(cache.containsKey("a"));
+        assertEquals(30, (int) cache.get("c"));
+        assertEquals(2L, cache.getEvictions());
+    }
+
+    @Test(timeout=SECOND)
+    public void testCounters() {
+        LruCache<String, Integer> cache = new LruCache<>(2);
+        cache.put("a", 1);
+        cache.get("a");
+        assertEquals(1, (int) cache.getOrDefault("a", 5));
+        assertNull(cache.getOrDefault("b", null));
+        cache.containsKey("b");
+        try {
+            cache.get("b");
+            fail("Expected NoSuchKeyException");
+        } catch (NoSuchKeyException ex) {
+            // Do nothing
+        }
+        assertEquals(2L, cache.getHits());
+        assertEquals(2L, cache.getMisses());
+        assertEquals(0L, cache.getEvictions());
+    }
+
+    @Test(timeout=SECOND)
+    public void testRemove() {
+        LruCache<String, Integer> cache = new LruCache<>(2);
+        cache.put("a", 1);
+        cache.put("b", 2);
+        assertEquals(1, (int) cache.remove("a"));
+        cache.put("c", 3);
+        assertEquals(0L, cache.getEvictions());
+        assertEquals(2, cache.size());
+        try {
+            cache.remove("a");
+            fail("Expected NoSuchKeyException");
+        } catch (NoSuchKeyException ex) {
+            // Do nothing
+        }
+
+        // Removing the only pairs leaves the cache usable
+        cache.remove("b");
+        cache.remove("c");
+        assertTrue(cache.isEmpty());
+        cache.put("d", 4);
+        assertEquals(4, (int) cache.get("d"));
+    }
+
+    @Test(timeout=SECOND)
+    public void testBadCapacityFails() {
+        try {
+            new LruCache<String, Integer>(0);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException ex) {
+            // Do nothing
+        }
+    }
+
+    @Test(timeout=5 * SECOND)
+    public void testManyKeysIsEfficient() {
+        LruCache<Integer, Integer> cache = new LruCache<>(1000);
+        for (int i = 0; i < 1000000; i++) {
+            cache.put(i, i);
+            assertEquals(i - i % 500, (int) cache.get(i - i % 500));
+        }
+        assertEquals(1000, cache.size());
+        assertEquals(1000000L - 1000, cache.getEvictions());
+    }
+}
@@ -1,14 +1,38 @@
 package misc;
 
+import calculator.ast.AstInterner;
+import calculator.ast.AstNode;
+import calculator.ast.ExpressionManipulators;
+import calculator.compiler.BytecodeCompiler;
+import calculator.compiler.ColumnEvaluator;
+import calculator.compiler.StackProgram;
+import calculator.gui.ImageDrawer;
+import calculator.interpreter.Calculator;
+import calculator.interpreter.Environment;
+import calculator.interpreter.FunctionTable;
+import calculator.interpreter.Interpreter;
+import calculator.interpreter.VariableStore;
+import calculator.parser.Parser;
+import calculator.parser.PrattParser;
 import datastructures.concrete.DoubleLinkedList;
+import datastructures.concrete.DoubleList;
+import datastructures.concrete.ImmutableList;
+import datastructures.concrete.dictionaries.ArrayDictionary;
+import datastructures.concrete.dictionaries.ChainedHashDictionary;
+import datastructures.interfaces.IDictionary;
 import datastructures.interfaces.IList;
 
+import java.awt.geom.Rectangle2D;
+import java.io.IOException;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.DoubleUnaryOperator;
 import java.util.function.Function;
 
 /**
- * TODO: Document
+ * A collection of small timing experiments. Run 'main' to print the results
+ * of each experiment; none of these are run as part of the test suite.
  */
 public class RuntimeAnalysis {
     // If a single test takes more then 5 seconds, give up -- it's too expensive.
@@ -21,7 +45,546 @@ public class RuntimeAnalysis {
     private static final int TRIALS = 5;
 
     public static void main(String[] args) {
+        reportNumericLeaves();
+        reportDictionaryScaling();
+        reportChildLists();
+        reportCompiledEvaluation();
+        reportParallelPlot();
+        reportAdaptivePlot();
+        reportIncrementalVariables();
+        reportSharedReferences();
+        reportExpressionCache();
+        reportHashConsing();
+        reportFreeVariables();
+        reportDeepExpressions();
+        reportPrinting();
+        reportParsing();
+    }
+
+    /**
+     * Compares reading a number leaf now that it stores a primitive double against
+     * the old representation, which kept the number as a string and re-parsed it on
+     * every read. Also reports the cost of sampling 'plot' over 10^6 points, which
+     * performs one such read per leaf per sample.
+     */
+    private static void reportNumericLeaves() {
+        int points = 1000000;
+
+        long parseMillis = averageMillis(() -> {
+            double total = 0;
+            for (int i = 0; i < points; i++) {
+                String name = "" + (i * 0.001);
+                total += Double.parseDouble(name);
+            }
+            return total;
+        });
+        long primitiveMillis = averageMillis(() -> {
+            double total = 0;
+            for (int i = 0; i < points; i++) {
+                total += new AstNode(i * 0.001).getNumericValue();
+            }
+            return total;
+        });
+        System.out.println(String.format(
+                "Number leaves (%d reads): string round trip %d ms, primitive double %d ms",
+                points, parseMillis, primitiveMillis));
+
+        Calculator calc = new Calculator(new NullImageDrawer());
+        long plotMillis = averageMillis(() -> calc.evaluate("plot(3 * x ^ 2 + 2 * x + 1, x, 0, 1, 0.000001)"));
+        System.out.println(String.format("plot over %d points: %d ms", points, plotMillis));
+    }
+
+    /**
+     * Times filling a dictionary with n variable-like keys and then looking each
+     * one up twice (containsKey followed by get, the way the evaluator used to),
+     * for n from 10 up to 10^6. ArrayDictionary is quadratic, so each step takes it
+     * roughly 100 times longer: we stop timing it once the next step would likely
+     * take longer than TIMEOUT.
+     */
+    private static void reportDictionaryScaling() {
+        boolean arrayTimedOut = false;
+        for (int n = 10; n <= 1000000; n *= 10) {
+            int size = n;
+            String arrayResult = "skipped";
+            if (!arrayTimedOut) {
+                long millis = averageMillis(() -> fillAndLookUp(new ArrayDictionary<>(), size));
+                arrayTimedOut = millis * 100 > TIMEOUT;
+                arrayResult = millis + " ms";
+            }
+            long hashMillis = averageMillis(() -> fillAndLookUp(new ChainedHashDictionary<>(), size));
+            System.out.println(String.format(
+                    "%d keys: ArrayDictionary %s, ChainedHashDictionary %d ms",
+                    size, arrayResult, hashMillis));
+        }
+    }
+
+    private static int fillAndLookUp(IDictionary<String, AstNode> dict, int size) {
+        for (int i = 0; i < size; i++) {
+            dict.put("var" + i, new AstNode(i));
+        }
+        int found = 0;
+        for (int i = 0; i < size; i++) {
+            String key = "var" + i;
+            if (dict.containsKey(key) && dict.get(key).isNumber()) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Reports how much heap a large expression tree retains per node, and how long
+     * it takes to build and simplify that tree.
+     */
+    private static void reportChildLists() {
+        int terms = 100000;
+        int nodes = 6 * terms - 1;
+        Environment env = makeEnvironment();
+
+        long bytes = retainedBytes(() -> makeSum(0, terms));
+        long millis = averageMillis(() -> ExpressionManipulators.simplify(env, makeSum(0, terms)));
+        System.out.println(String.format(
+                "AST with %d nodes: %d bytes/node, %d ms to build and simplify",
+                nodes, bytes / nodes, millis));
+    }
+
+    /**
+     * Builds a balanced tree that sums 'x * (start + 1)', ..., 'x * (end - 1 + 1)'.
+     */
+    private static AstNode makeSum(int start, int end) {
+        if (end - start == 1) {
+            AstNode inner = new AstNode("+", ImmutableList.of(new AstNode(start), new AstNode(1)));
+            return new AstNode("*", ImmutableList.of(new AstNode("x"), inner));
+        }
+        int mid = (start + end) / 2;
+        return new AstNode("+", ImmutableList.of(makeSum(start, mid), makeSum(mid, end)));
+    }
+
+    /**
+     * Compares evaluating an expression at 10^6 points by walking its AST against
+     * evaluating the class BytecodeCompiler generates for it, running it on the
+     * StackProgram stack machine, and evaluating all of the points at once with
+     * ColumnEvaluator.
+     */
+    private static void reportCompiledEvaluation() {
+        int points = 1000000;
+        Environment env = makeEnvironment();
+        env.getVariables().put("c", new AstNode(4));
+        AstNode expression = new Parser().parse("3 * x ^ 2 + c * sin(x) - x / c\n").getChildren().get(0);
+
+        long treeMillis = averageMillis(() -> {
+            double total = 0;
+            for (int i = 0; i < points; i++) {
+                env.getVariables().put("x", new AstNode(i * 0.001));
+                total += ExpressionManipulators.toDouble(env, expression).getNumericValue();
+            }
+            env.getVariables().remove("x");
+            return total;
+        });
+        long compiledMillis = averageMillis(() -> {
+            DoubleUnaryOperator function = BytecodeCompiler.compile(env, expression, "x");
+            double total = 0;
+            for (int i = 0; i < points; i++) {
+                total += function.applyAsDouble(i * 0.001);
+            }
+            return total;
+        });
+        long stackMillis = averageMillis(() -> {
+            StackProgram program = StackProgram.compile(env, expression, "x");
+            double total = 0;
+            for (int i = 0; i < points; i++) {
+                total += program.applyAsDouble(i * 0.001);
+            }
+            return total;
+        });
+        double[] inputs = new double[points];
+        for (int i = 0; i < points; i++) {
+            inputs[i] = i * 0.001;
+        }
+        long columnMillis = averageMillis(() -> ColumnEvaluator.compile(env, expression, "x").evaluate(inputs));
+        System.out.println(String.format(
+                "Evaluating at %d points: tree walking %d ms, bytecode %d ms, stack machine %d ms, "
+                        + "columns %d ms (including compilation)",
+                points, treeMillis, compiledMillis, stackMillis, columnMillis));
+    }
 
+    /**
+     * Times a fine-step plot of an expression that is expensive to evaluate. Plot
+     * samples are split between the threads of the common ForkJoinPool, so this
+     * should shrink roughly in proportion to the number of processors.
+     */
+    private static void reportParallelPlot() {
+        Calculator calc = new Calculator(new NullImageDrawer());
+        long millis = averageMillis(() -> calc.evaluate("plot(sin(cos(x)) * cos(sin(x)) ^ 3, x, 0, 1, 0.0000005)"));
+        System.out.println(String.format(
+                "plot over 2000000 points on %d processors: %d ms",
+                Runtime.getRuntime().availableProcessors(), millis));
+    }
+
+    /**
+     * Compares a uniform plot fine enough to look smooth against an adaptive plot of
+     * the same curve, which only samples densely where the curve bends.
+     */
+    private static void reportAdaptivePlot() {
+        NullImageDrawer drawer = new NullImageDrawer();
+        Calculator calc = new Calculator(drawer);
+        long uniformMillis = averageMillis(() -> calc.evaluate("plot(sin(x ^ 2) / (1 + x ^ 2), x, -10, 10, 0.00002)"));
+        int uniformPoints = drawer.lastSize;
+        long adaptiveMillis = averageMillis(() -> calc.evaluate("plot(sin(x ^ 2) / (1 + x ^ 2), x, -10, 10)"));
+        int adaptivePoints = drawer.lastSize;
+        System.out.println(String.format(
+                "plot of sin(x ^ 2) / (1 + x ^ 2): uniform %d points in %d ms, adaptive %d points in %d ms",
+                uniformPoints, uniformMillis, adaptivePoints, adaptiveMillis));
+    }
+
+    /**
+     * Defines a chain of 500 variables, each one more than the previous, and then
+     * evaluates the last one repeatedly while redefining the start of the chain every
+     * tenth query. With a plain dictionary each query walks the whole chain; with a
+     * VariableStore only the queries right after a redefinition do.
+     */
+    private static void reportIncrementalVariables() {
+        int length = 500;
+        int queries = 1000;
+        for (boolean cached : new boolean[] {false, true}) {
+            Environment env = new Environment(
+                    cached ? new VariableStore() : new ChainedHashDictionary<>(),
+                    null, new FunctionTable(), new FunctionTable(), new Interpreter());
+            for (int i = 1; i <= length; i++) {
+                env.getVariables().put("x" + i, new AstNode("+", ImmutableList.of(
+                        new AstNode("x" + (i - 1)), new AstNode(1))));
+            }
+            AstNode last = new AstNode("x" + length);
+            long millis = averageMillis(() -> {
+                double total = 0;
+                for (int i = 0; i < queries; i++) {
+                    if (i % 10 == 0) {
+                        env.getVariables().put("x0", new AstNode(i));
+                    }
+                    total += ExpressionManipulators.toDouble(env, last).getNumericValue();
+                }
+                return total;
+            });
+            System.out.println(String.format(
+                    "%d queries on a chain of %d variables, %s: %d ms",
+                    queries, length, cached ? "VariableStore" : "ChainedHashDictionary", millis));
+        }
+    }
+
+    /**
+     * Evaluates the end of a chain 'v1 := v0 + v0', 'v2 := v1 + v1', ... for different
+     * values of v0, so nothing is cached between evaluations. Each variable is only evaluated
+     * once per call, so the time grows linearly with the length of the chain rather than
+     * doubling with each link.
+     */
+    private static void reportSharedReferences() {
+        for (int length = 10; length <= 640; length *= 4) {
+            Environment env = makeEnvironment();
+            for (int i = 1; i <= length; i++) {
+                AstNode previous = new AstNode("v" + (i - 1));
+                env.getVariables().put("v" + i, new AstNode("+", ImmutableList.of(previous, previous)));
+            }
+            AstNode last = new AstNode("v" + length);
+            long millis = averageMillis(() -> {
+                double total = 0;
+                for (int i = 0; i < 100; i++) {
+                    env.getVariables().put("v0", new AstNode(i));
+                    total += ExpressionManipulators.toDouble(env, last).getNumericValue();
+                }
+                return total;
+            });
+            System.out.println(String.format(
+                    "100 evaluations of a doubling chain of %d variables: %d ms", length, millis));
+        }
+    }
+
+    /**
+     * Simplifies the same 4096-term expression 1000 times, the way a client sending the
+     * same query over and over would. With a VariableStore, all but the first call find
+     * the result in its expression cache. The cost of a hit depends on how quickly the
+     * key can be compared with the cached one: that's immediate for the same instance,
+     * but a separately built copy has to be compared node by node.
+     */
+    private static void reportExpressionCache() {
+        AstNode[] copies = new AstNode[10];
+        for (int i = 0; i < copies.length; i++) {
+            copies[i] = makeSum(0, 1 << 12);
+        }
+        for (int numCopies : new int[] {1, copies.length}) {
+            for (boolean cached : new boolean[] {false, true}) {
+                VariableStore store = new VariableStore();
+                Environment env = new Environment(
+                        cached ? store : new ChainedHashDictionary<>(),
+                        null, new FunctionTable(), new FunctionTable(), new Interpreter());
+                long millis = averageMillis(() -> {
+                    int total = 0;
+                    for (int i = 0; i < 1000; i++) {
+                        total += ExpressionManipulators.simplify(env, copies[i % numCopies]).getChildren().size();
+                    }
+                    return total;
+                });
+                System.out.println(String.format(
+                        "1000 simplifications of %s, %s: %d ms",
+                        numCopies == 1 ? "one expression" : "equal copies of an expression",
+                        cached ? "VariableStore" : "ChainedHashDictionary", millis));
+            }
+        }
+    }
+
+    /**
+     * Compares ten separately built copies of the 4096-term expression against the
+     * same copies passed through AstInterner: the memory they hold on to, how long
+     * interning a copy takes, and 1000 cached simplifications of the interned copies,
+     * which are all the same instance.
+     */
+    private static void reportHashConsing() {
+        int numCopies = 10;
+        long plainBytes = retainedBytes(() -> {
+            AstNode[] copies = new AstNode[numCopies];
+            for (int i = 0; i < numCopies; i++) {
+                copies[i] = makeSum(0, 1 << 12);
+            }
+            return copies;
+        });
+        long internedBytes = retainedBytes(() -> {
+            AstInterner interner = new AstInterner();
+            AstNode[] copies = new AstNode[numCopies];
+            for (int i = 0; i < numCopies; i++) {
+                copies[i] = interner.intern(makeSum(0, 1 << 12));
+            }
+            return copies;
+        });
+        System.out.println(String.format(
+                "%d copies of an expression: %d KB as built, %d KB interned",
+                numCopies, plainBytes / 1024, internedBytes / 1024));
+
+        AstInterner interner = new AstInterner();
+        long buildMillis = averageMillis(() -> makeSum(0, 1 << 12));
+        long internMillis = averageMillis(() -> interner.intern(makeSum(0, 1 << 12)));
+        System.out.println(String.format(
+                "Building a copy: %d ms, building and interning it: %d ms", buildMillis, internMillis));
+
+        AstNode[] copies = new AstNode[numCopies];
+        for (int i = 0; i < numCopies; i++) {
+            copies[i] = interner.intern(makeSum(0, 1 << 12));
+        }
+        Environment env = new Environment(
+                new VariableStore(), null, new FunctionTable(), new FunctionTable(), new Interpreter());
+        long millis = averageMillis(() -> {
+            int total = 0;
+            for (int i = 0; i < 1000; i++) {
+                total += ExpressionManipulators.simplify(env, copies[i % numCopies]).getChildren().size();
+            }
+            return total;
+        });
+        System.out.println(String.format(
+                "1000 simplifications of interned copies of an expression, VariableStore: %d ms", millis));
+    }
+
+    /**
+     * Simplifies a 4096-term sum of 'x * y' and 'a * y' terms, where at most one term
+     * contains 'a', 100 times. When none of its variables are defined, simplify can tell
+     * from the root's summary that there's nothing to do. Defining 'a' makes it descend
+     * only into the subtrees that contain 'a', and defining 'y' makes it visit every node.
+     */
+    private static void reportFreeVariables() {
+        AstNode expression = makeProducts(0, 1 << 12);
+        String[] defined = {null, "a", "y"};
+        for (String name : defined) {
+            Environment env = makeEnvironment();
+            if (name != null) {
+                env.getVariables().put(name, new AstNode(2));
+            }
+            long millis = averageMillis(() -> {
+                int total = 0;
+                for (int i = 0; i < 100; i++) {
+                    total += ExpressionManipulators.simplify(env, expression).getChildren().size();
+                }
+                return total;
+            });
+            System.out.println(String.format(
+                    "100 simplifications with %s defined: %d ms",
+                    name == null ? "no variables" : "'" + name + "'", millis));
+        }
+    }
+
+    /**
+     * Evaluates, simplifies and prints left-deep sums 'x + 1 + 1 + ...' of increasing
+     * length, like the trees the parser builds for long generated inputs. Every
+     * traversal keeps its place on a work stack, so none of these overflow the Java
+     * stack, and the time taken should grow linearly with the length.
+     */
+    private static void reportDeepExpressions() {
+        Calculator calc = new Calculator();
+        for (int terms = 10000; terms <= 1000000; terms *= 10) {
+            AstNode expression = new AstNode("x");
+            for (int i = 0; i < terms; i++) {
+                expression = new AstNode("+", ImmutableList.of(expression, new AstNode(1)));
+            }
+            AstNode sum = expression;
+            Environment env = makeEnvironment();
+            env.getVariables().put("x", new AstNode(0.5));
+            Environment symbolic = makeEnvironment();
+
+            long evaluate = averageMillis(() -> symbolic.getInterpreter().evaluate(symbolic, sum));
+            long toDouble = averageMillis(() -> ExpressionManipulators.toDouble(env, sum));
+            long simplify = averageMillis(() -> ExpressionManipulators.simplify(env, sum));
+            long print = averageMillis(() -> calc.convertToString(sum));
+            System.out.println(String.format(
+                    "Sum of %d terms: evaluate %d ms, toDouble %d ms, simplify %d ms, convertToString %d ms",
+                    terms, evaluate, toDouble, simplify, print));
+        }
+    }
+
+    /**
+     * Prints a symbolic result with 10^5 terms, mixing whole and fractional numbers,
+     * both into a String and streamed in chunks to a Writer that discards them.
+     */
+    private static void reportPrinting() {
+        Calculator calc = new Calculator();
+        AstNode expression = new AstNode("x");
+        for (int i = 0; i < 100000; i++) {
+            AstNode number = new AstNode(i % 2 == 0 ? i : i + 0.25);
+            AstNode term = new AstNode("*", ImmutableList.of(number, new AstNode("negate", ImmutableList.of(new AstNode("y")))));
+            expression = new AstNode(i % 3 == 0 ? "-" : "+", ImmutableList.of(expression, term));
+        }
+        AstNode result = expression;
+
+        long toString = averageMillis(() -> calc.convertToString(result));
+        long streamed = averageMillis(() -> {
+            Writer discard = new Writer() {
+                @Override
+                public void write(char[] buffer, int offset, int length) {
+                    // Do nothing
+                }
+
+                @Override
+                public void flush() {
+                    // Do nothing
+                }
+
+                @Override
+                public void close() {
+                    // Do nothing
+                }
+            };
+            try {
+                calc.print(result, discard);
+            } catch (IOException ex) {
+                throw new RuntimeException(ex);
+            }
+            return discard;
+        });
+        System.out.println(String.format(
+                "Printing %d characters: convertToString %d ms, streamed %d ms",
+                calc.convertToString(result).length(), toString, streamed));
+    }
+
+    /**
+     * Parses a corpus of one-line inputs, like the ones typed into the calculator,
+     * and a corpus of multi-line scripts, 200 times each. Compares the ANTLR Parser
+     * with the hand-written PrattParser, both creating a new one for every input and
+     * reusing one: a reused Parser also reuses its lexer and ANTLR parser, and a reused
+     * PrattParser its token arrays, the way Calculator does.
+     */
+    private static void reportParsing() {
+        String[] oneLiners = {
+            "1 + 2\n",
+            "x := 3\n",
+            "simplify(3 * x ^ 2 + c * sin(x) - x / c)\n",
+            "toDouble(sqrt(2) * pi / (1 + e))\n",
+            "plot(x ^ 2 - 3 * x, x, -10, 10, 0.5)\n",
+            "f(a, b, (c - d) * -e)\n",
+            "y := (x + 1) * (x - 1) / 4\n",
+            "-(-2) ^ 3 ^ 0.5\n",
+        };
+        String[] scripts = new String[8];
+        for (int i = 0; i < scripts.length; i++) {
+            StringBuilder script = new StringBuilder();
+            for (int line = 0; line < 20; line++) {
+                script.append("v").append(line).append(" := (v").append(line + i)
+                        .append(" + 2.5) * sin(x) - \\\n    x ^ ").append(line % 4)
+                        .append("  # line ").append(line).append('\n');
+                script.append(oneLiners[(i + line) % oneLiners.length]);
+            }
+            scripts[i] = script.toString();
+        }
+
+        Parser reusedAntlr = new Parser();
+        PrattParser reusedPratt = new PrattParser();
+        String[][] corpora = {oneLiners, scripts};
+        String[] names = {"one-liners", "scripts"};
+        for (int c = 0; c < corpora.length; c++) {
+            String[] corpus = corpora[c];
+            int repeats = 200;
+            long freshAntlr = averageMillis(() -> parseAll(corpus, repeats, input -> new Parser().parse(input)));
+            long reuseAntlr = averageMillis(() -> parseAll(corpus, repeats, reusedAntlr::parse));
+            long freshPratt = averageMillis(() -> parseAll(corpus, repeats, input -> new PrattParser().parse(input)));
+            long reusePratt = averageMillis(() -> parseAll(corpus, repeats, reusedPratt::parse));
+            System.out.println(String.format(
+                    "Parsing %d %s: new Parser each time %d ms, reused Parser %d ms, "
+                            + "new PrattParser each time %d ms, reused PrattParser %d ms",
+                    corpus.length * repeats, names[c], freshAntlr, reuseAntlr, freshPratt, reusePratt));
+        }
+    }
+
+    private static AstNode parseAll(String[] corpus, int repeats, Function<String, AstNode> parser) {
+        AstNode last = null;
+        for (int i = 0; i < repeats; i++) {
+            for (String input : corpus) {
+                last = parser.apply(input);
+            }
+        }
+        return last;
+    }
+
+    /**
+     * Builds a balanced sum of 'x * y' terms, except that the first term is 'a * y'.
+     */
+    private static AstNode makeProducts(int start, int end) {
+        if (end - start == 1) {
+            AstNode left = new AstNode(start == 0 ? "a" : "x");
+            return new AstNode("*", ImmutableList.of(left, new AstNode("y")));
+        }
+        int mid = (start + end) / 2;
+        return new AstNode("+", ImmutableList.of(makeProducts(start, mid), makeProducts(mid, end)));
+    }
+
+    private static Environment makeEnvironment() {
+        return new Environment(
+                new ChainedHashDictionary<>(), null, new FunctionTable(), new FunctionTable(), new Interpreter());
+    }
+
+    /**
+     * Returns roughly how many bytes of heap the object built by the given
+     * experiment keeps alive.
+     */
+    private static long retainedBytes(Experiment experiment) {
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        long before = runtime.totalMemory() - runtime.freeMemory();
+        Object result = experiment.run();
+        System.gc();
+        long after = runtime.totalMemory() - runtime.freeMemory();
+        if (result == null) {
+            throw new AssertionError();
+        }
+        return after - before;
+    }
+
+    /**
+     * Runs the given experiment once to warm up, then returns the average
+     * number of milliseconds it took over TRIALS further runs.
+     */
+    private static long averageMillis(Experiment experiment) {
+        experiment.run();
+        long total = 0;
+        for (int i = 0; i < TRIALS; i++) {
+            long start = System.currentTimeMillis();
+            experiment.run();
+            total += System.currentTimeMillis() - start;
+        }
+        return total / TRIALS;
     }
 
     private static List<Long> conductExperiment(Function<Integer, List<Long>> experiment) {
@@ -66,4 +629,31 @@ public class RuntimeAnalysis {
         }
         return out;
     }
+
+    /**
+     * A single timed run. The result is returned so the JIT can't discard the work.
+     */
+    private interface Experiment {
+        Object run();
+    }
+
+    /**
+     * An image drawer that discards everything it's asked to draw, so experiments
+     * only measure the cost of computing the plot.
+     */
+    private static class NullImageDrawer extends ImageDrawer {
+        // Only the number of points is kept, for reporting
+        public int lastSize;
+
+        public NullImageDrawer() {
+            super(null, 800, 800);
+        }
+
+        @Override
+        public void drawScatterPlot(String title, String xAxisLabel, String yAxisLabel,
+                                    DoubleList xValues, DoubleList yValues,
+                                    Rectangle2D drawRegion) {
+            this.lastSize = xValues.size();
+        }
+    }
 }